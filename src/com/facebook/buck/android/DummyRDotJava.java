@@ -158,28 +158,10 @@ public class DummyRDotJava extends AbstractBuildRule
           rDotJavaSrcFolder,
           forceFinalResourceIds,
           unionPackage,
-          /* rName */ Optional.empty());
+          /* rName */ Optional.empty(),
+          finalRName);
       steps.add(mergeStep);
-
-      if (!finalRName.isPresent()) {
-        javaSourceFilePaths = mergeStep.getRDotJavaFiles();
-      } else {
-        MergeAndroidResourcesStep mergeFinalRStep =
-            MergeAndroidResourcesStep.createStepForDummyRDotJava(
-                getProjectFilesystem(),
-                getResolver(),
-                androidResourceDeps,
-                rDotJavaSrcFolder,
-                /* forceFinalResourceIds */ true,
-                unionPackage,
-                finalRName);
-        steps.add(mergeFinalRStep);
-
-        javaSourceFilePaths = ImmutableSortedSet.<Path>naturalOrder()
-            .addAll(mergeStep.getRDotJavaFiles())
-            .addAll(mergeFinalRStep.getRDotJavaFiles())
-            .build();
-      }
+      javaSourceFilePaths = mergeStep.getRDotJavaFiles();
     }
 
     // Clear out the directory where the .class files will be generated.
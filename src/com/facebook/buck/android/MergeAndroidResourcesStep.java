@@ -64,12 +64,17 @@ public class MergeAndroidResourcesStep implements Step {
   private final EnumSet<RType> bannedDuplicateResourceTypes;
   private final Optional<String> unionPackage;
   private final String rName;
+  private final Optional<String> finalRName;
 
   /**
    * Merges text symbols files from {@code aapt} for each of the input {@code android_resource}
    * into a set of resources per R.java package and writes an {@code R.java} file per package under
    * the output directory. Also, if {@code uberRDotTxt} is present, the IDs in the output
    * {@code R.java} file will be taken from the {@code R.txt} file.
+   * <p>
+   * If {@code finalRName} is present, a second class with that name and {@code final} ids is
+   * written next to each {@code R.java} from the same merged symbols, rather than merging all of
+   * the symbols files again in another step.
    */
   @VisibleForTesting
   MergeAndroidResourcesStep(
@@ -81,7 +86,8 @@ public class MergeAndroidResourcesStep implements Step {
       boolean forceFinalResourceIds,
       EnumSet<RType> bannedDuplicateResourceTypes,
       Optional<String> unionPackage,
-      Optional<String> rName) {
+      Optional<String> rName,
+      Optional<String> finalRName) {
     this.filesystem = filesystem;
     this.pathResolver = pathResolver;
     this.androidResourceDeps = ImmutableList.copyOf(androidResourceDeps);
@@ -91,6 +97,7 @@ public class MergeAndroidResourcesStep implements Step {
     this.bannedDuplicateResourceTypes = bannedDuplicateResourceTypes;
     this.unionPackage = unionPackage;
     this.rName = rName.orElse("R");
+    this.finalRName = finalRName;
   }
 
   public static MergeAndroidResourcesStep createStepForDummyRDotJava(
@@ -100,7 +107,8 @@ public class MergeAndroidResourcesStep implements Step {
       Path outputDir,
       boolean forceFinalResourceIds,
       Optional<String> unionPackage,
-      Optional<String> rName) {
+      Optional<String> rName,
+      Optional<String> finalRName) {
     return new MergeAndroidResourcesStep(
         filesystem,
         pathResolver,
@@ -110,7 +118,8 @@ public class MergeAndroidResourcesStep implements Step {
         forceFinalResourceIds,
         /* bannedDuplicateResourceTypes */ EnumSet.noneOf(RType.class),
         unionPackage,
-        rName);
+        rName,
+        finalRName);
   }
 
   public static MergeAndroidResourcesStep createStepForUberRDotJava(
@@ -130,17 +139,28 @@ public class MergeAndroidResourcesStep implements Step {
         /* forceFinalResourceIds */ true,
         bannedDuplicateResourceTypes,
         unionPackage,
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
   }
 
   public ImmutableSortedSet<Path> getRDotJavaFiles() {
-    return FluentIterable.from(androidResourceDeps)
-        .transform(HasAndroidResourceDeps::getRDotJavaPackage)
-        .append(unionPackage
-            .map(Collections::singletonList)
-            .orElse(Collections.emptyList()))
-        .transform(this::getPathToRDotJava)
-        .toSortedSet(natural());
+    ImmutableSortedSet.Builder<Path> rDotJavaFiles = ImmutableSortedSet.naturalOrder();
+    for (String className : getRClassNames()) {
+      rDotJavaFiles.addAll(
+          FluentIterable.from(androidResourceDeps)
+              .transform(HasAndroidResourceDeps::getRDotJavaPackage)
+              .append(unionPackage
+                  .map(Collections::singletonList)
+                  .orElse(Collections.emptyList()))
+              .transform(rDotJavaPackage -> getPathToRDotJava(rDotJavaPackage, className)));
+    }
+    return rDotJavaFiles.build();
+  }
+
+  private ImmutableList<String> getRClassNames() {
+    return finalRName.isPresent() ?
+        ImmutableList.of(rName, finalRName.get()) :
+        ImmutableList.of(rName);
   }
 
   @Override
@@ -217,37 +237,46 @@ public class MergeAndroidResourcesStep implements Step {
       }
     }
 
-    writePerPackageRDotJava(rDotJavaPackageToResources, filesystem);
     Set<String> emptyPackages = Sets.difference(
         ImmutableSet.copyOf(symbolsFileToRDotJavaPackage.values()),
         rDotJavaPackageToResources.keySet());
 
-    if (!emptyPackages.isEmpty()) {
-      writeEmptyRDotJavaForPackages(emptyPackages, filesystem);
+    writePerPackageRDotJava(rDotJavaPackageToResources, filesystem, rName, forceFinalResourceIds);
+    writeEmptyRDotJavaForPackages(emptyPackages, filesystem, rName);
+    if (finalRName.isPresent()) {
+      writePerPackageRDotJava(
+          rDotJavaPackageToResources,
+          filesystem,
+          finalRName.get(),
+          /* forceFinalResourceIds */ true);
+      writeEmptyRDotJavaForPackages(emptyPackages, filesystem, finalRName.get());
     }
   }
 
   private void writeEmptyRDotJavaForPackages(
       Set<String> rDotJavaPackages,
-      ProjectFilesystem filesystem) throws IOException {
+      ProjectFilesystem filesystem,
+      String className) throws IOException {
     for (String rDotJavaPackage : rDotJavaPackages) {
-      Path outputFile = getPathToRDotJava(rDotJavaPackage);
+      Path outputFile = getPathToRDotJava(rDotJavaPackage, className);
       filesystem.mkdirs(outputFile.getParent());
       filesystem.writeContentsToPath(
-          String.format("package %s;\n\npublic class %s {}\n", rDotJavaPackage, rName), outputFile);
+          String.format("package %s;\n\npublic class %s {}\n", rDotJavaPackage, className),
+          outputFile);
     }
   }
 
-  @VisibleForTesting
-  void writePerPackageRDotJava(
+  private void writePerPackageRDotJava(
       SortedSetMultimap<String, RDotTxtEntry> packageToResources,
-      ProjectFilesystem filesystem) throws IOException {
+      ProjectFilesystem filesystem,
+      String className,
+      boolean forceFinalResourceIds) throws IOException {
     for (String rDotJavaPackage : packageToResources.keySet()) {
-      Path outputFile = getPathToRDotJava(rDotJavaPackage);
+      Path outputFile = getPathToRDotJava(rDotJavaPackage, className);
       filesystem.mkdirs(outputFile.getParent());
       try (PrintWriter writer = new PrintWriter(filesystem.newFileOutputStream(outputFile))) {
         writer.format("package %s;\n\n", rDotJavaPackage);
-        writer.format("public class %s {\n", rName);
+        writer.format("public class %s {\n", className);
 
         ImmutableList.Builder<String> customDrawablesBuilder = ImmutableList.builder();
         ImmutableList.Builder<String> grayscaleImagesBuilder = ImmutableList.builder();
@@ -414,9 +443,9 @@ public class MergeAndroidResourcesStep implements Step {
     return getShortName() + " " + Joiner.on(' ').join(resources);
   }
 
-  private Path getPathToRDotJava(String rDotJavaPackage) {
+  private Path getPathToRDotJava(String rDotJavaPackage, String className) {
     return outputDir.resolve(rDotJavaPackage.replace(".", "/")).resolve(
-        String.format("%s.java", rName));
+        String.format("%s.java", className));
   }
 
   private static class IntEnumerator {
@@ -42,21 +42,25 @@ import com.google.common.collect.Ordering;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * Step which parses resources in an android {@code res} directory and compiles them into a
@@ -74,16 +78,6 @@ public class MiniAapt implements Step {
   private static final String ITEM_TAG = "item";
   private static final String CUSTOM_DRAWABLE_PREFIX = "app-";
 
-  private static final XPathExpression ANDROID_ID_USAGE =
-      createExpression("//@*[starts-with(., '@') and " +
-              "not(starts-with(., '@+')) and " +
-              "not(starts-with(., '@android:')) and " +
-              "not(starts-with(., '@null'))]");
-
-  private static final XPathExpression ANDROID_ID_DEFINITION =
-      createExpression("//@*[starts-with(., '@+') and " +
-              "not(starts-with(., '@+android:id'))]");
-
   private static final ImmutableMap<String, RType> RESOURCE_TYPES = getResourceTypes();
   private static final ImmutableSet<String> IGNORED_TAGS = ImmutableSet.of(
       "eat-comment",
@@ -97,6 +91,7 @@ public class MiniAapt implements Step {
   private final AaptResourceCollector resourceCollector;
   private final boolean resourceUnion;
   private final boolean isGrayscaleImageProcessingEnabled;
+  private final XMLInputFactory xmlInputFactory;
 
   public MiniAapt(
       SourcePathResolver resolver,
@@ -130,14 +125,7 @@ public class MiniAapt implements Step {
     this.resourceCollector = new AaptResourceCollector();
     this.resourceUnion = resourceUnion;
     this.isGrayscaleImageProcessingEnabled = isGrayscaleImageProcessingEnabled;
-  }
-
-  private static XPathExpression createExpression(String expressionStr) {
-    try {
-      return XPathFactory.newInstance().newXPath().compile(expressionStr);
-    } catch (XPathExpressionException e) {
-      throw new RuntimeException(e);
-    }
+    this.xmlInputFactory = createXmlInputFactory();
   }
 
   private static ImmutableMap<String, RType> getResourceTypes() {
@@ -163,7 +151,7 @@ public class MiniAapt implements Step {
     try {
       collectResources(filesystem, context.getBuckEventBus());
       processXmlFilesForIds(filesystem, references);
-    } catch (IOException | XPathExpressionException | ResourceParseException e) {
+    } catch (IOException | ResourceParseException e) {
       context.logError(e, "Error parsing resources to generate resource IDs for %s.", resDirectory);
       return StepExecutionResult.ERROR;
     }
@@ -318,11 +306,8 @@ public class MiniAapt implements Step {
     boolean isGrayscaleImage = false;
     boolean isCustomDrawable = false;
     if (filename.endsWith(".xml")) {
-      try (InputStream stream = filesystem.newFileInputStream(resourceFile)) {
-        Document dom = parseXml(resourceFile, stream);
-        Element root = dom.getDocumentElement();
-        isCustomDrawable = root.getNodeName().startsWith(CUSTOM_DRAWABLE_PREFIX);
-      }
+      isCustomDrawable =
+          getRootElementName(filesystem, resourceFile).startsWith(CUSTOM_DRAWABLE_PREFIX);
     } else if (isGrayscaleImageProcessingEnabled) {
       isGrayscaleImage = filename.endsWith(".g.png");
     }
@@ -464,7 +449,7 @@ public class MiniAapt implements Step {
   void processXmlFilesForIds(
       ProjectFilesystem filesystem,
       ImmutableSet.Builder<RDotTxtEntry> references)
-      throws IOException, XPathExpressionException, ResourceParseException {
+      throws IOException, ResourceParseException {
     Path absoluteResDir = resolver.getAbsolutePath(resDirectory);
     Path relativeResDir = resolver.getRelativePath(resDirectory);
     for (Path path :
@@ -478,55 +463,141 @@ public class MiniAapt implements Step {
     }
   }
 
+  /**
+   * Scans a non-values {@code xml} resource file for id definitions ({@code @+id/...}) and
+   * references to other resources. This streams through the file rather than building a DOM,
+   * since layouts and other xml resources are by far the most numerous files in a {@code res}
+   * directory and we only need their attribute values.
+   * <p>
+   * Ids are numbered in the order they are first seen, so definitions are visited in document
+   * order with the attributes of each element sorted by name. Keep it that way: visiting them in
+   * any other order renumbers the ids in {@code R.txt}.
+   */
   @VisibleForTesting
   void processXmlFile(
       ProjectFilesystem filesystem,
       Path xmlFile,
       ImmutableSet.Builder<RDotTxtEntry> references)
-      throws IOException, XPathExpressionException, ResourceParseException {
+      throws IOException, ResourceParseException {
+    List<String> definitions = new ArrayList<>();
+    List<Map.Entry<String, String>> usages = new ArrayList<>();
     try (InputStream stream = filesystem.newFileInputStream(xmlFile)) {
-      Document dom = parseXml(xmlFile, stream);
-      NodeList nodesWithIds =
-          (NodeList) ANDROID_ID_DEFINITION.evaluate(dom, XPathConstants.NODESET);
-      for (int i = 0; i < nodesWithIds.getLength(); i++) {
-        String resourceName = nodesWithIds.item(i).getNodeValue();
-        if (!resourceName.startsWith(ID_DEFINITION_PREFIX)) {
-          throw new ResourceParseException("Invalid definition of a resource: '%s'", resourceName);
+      XMLStreamReader reader = createXmlStreamReader(stream);
+      try {
+        SortedMap<String, String> attributes = new TreeMap<>();
+        while (reader.hasNext()) {
+          if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            continue;
+          }
+          attributes.clear();
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(getAttributeName(reader, i), reader.getAttributeValue(i));
+          }
+          for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            String value = attribute.getValue();
+            if (isIdDefinition(value)) {
+              definitions.add(value);
+            } else if (isIdUsage(value)) {
+              usages.add(attribute);
+            }
+          }
         }
-        Preconditions.checkState(resourceName.startsWith(ID_DEFINITION_PREFIX));
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new ResourceParseException(
+          "Error parsing xml file '%s': %s.",
+          xmlFile,
+          e.getMessage());
+    }
 
-        resourceCollector.addIntResourceIfNotPresent(
-            RType.ID,
-            resourceName.substring(ID_DEFINITION_PREFIX.length()));
+    for (String resourceName : definitions) {
+      if (!resourceName.startsWith(ID_DEFINITION_PREFIX)) {
+        throw new ResourceParseException("Invalid definition of a resource: '%s'", resourceName);
       }
 
-      NodeList nodesUsingIds =
-          (NodeList) ANDROID_ID_USAGE.evaluate(dom, XPathConstants.NODESET);
-      for (int i = 0; i < nodesUsingIds.getLength(); i++) {
-        String resourceName = nodesUsingIds.item(i).getNodeValue();
-        int slashPosition = resourceName.indexOf('/');
-        if (resourceName.charAt(0) != '@' || slashPosition == -1) {
-          throw new ResourceParseException("Invalid definition of a resource: '%s'", resourceName);
-        }
+      resourceCollector.addIntResourceIfNotPresent(
+          RType.ID,
+          resourceName.substring(ID_DEFINITION_PREFIX.length()));
+    }
 
-        String rawRType = resourceName.substring(1, slashPosition);
-        String name = resourceName.substring(slashPosition + 1);
+    for (Map.Entry<String, String> usage : usages) {
+      String resourceName = usage.getValue();
+      int slashPosition = resourceName.indexOf('/');
+      if (slashPosition == -1) {
+        throw new ResourceParseException("Invalid definition of a resource: '%s'", resourceName);
+      }
 
-        String nodeName = nodesUsingIds.item(i).getNodeName();
-        if (name.startsWith("android:") || nodeName.startsWith("tools:")) {
-          continue;
-        }
-        if (!RESOURCE_TYPES.containsKey(rawRType)) {
-          throw new ResourceParseException("Invalid reference '%s' in '%s'", resourceName, xmlFile);
-        }
-        RType rType = Preconditions.checkNotNull(RESOURCE_TYPES.get(rawRType));
+      String rawRType = resourceName.substring(1, slashPosition);
+      String name = resourceName.substring(slashPosition + 1);
+
+      if (name.startsWith("android:") || usage.getKey().startsWith("tools:")) {
+        continue;
+      }
+      if (!RESOURCE_TYPES.containsKey(rawRType)) {
+        throw new ResourceParseException("Invalid reference '%s' in '%s'", resourceName, xmlFile);
+      }
+      RType rType = Preconditions.checkNotNull(RESOURCE_TYPES.get(rawRType));
+
+      references.add(new FakeRDotTxtEntry(IdType.INT, rType, sanitizeName(name)));
+    }
+  }
+
+  private static boolean isIdDefinition(String value) {
+    return value.startsWith("@+") && !value.startsWith("@+android:id");
+  }
 
+  private static boolean isIdUsage(String value) {
+    return value.startsWith("@") &&
+        !value.startsWith("@+") &&
+        !value.startsWith("@android:") &&
+        !value.startsWith("@null");
+  }
+
+  private static String getAttributeName(XMLStreamReader reader, int index) {
+    String prefix = reader.getAttributePrefix(index);
+    String localName = reader.getAttributeLocalName(index);
+    return Strings.isNullOrEmpty(prefix) ? localName : prefix + ":" + localName;
+  }
 
-        references.add(new FakeRDotTxtEntry(IdType.INT, rType, sanitizeName(name)));
+  /**
+   * @return the name of the root element of {@code xmlFile}. The rest of the file is still read
+   *     so that malformed files are reported as such.
+   */
+  private String getRootElementName(ProjectFilesystem filesystem, Path xmlFile)
+      throws IOException, ResourceParseException {
+    try (InputStream stream = filesystem.newFileInputStream(xmlFile)) {
+      XMLStreamReader reader = createXmlStreamReader(stream);
+      try {
+        reader.nextTag();
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        while (reader.hasNext()) {
+          reader.next();
+        }
+        return Strings.isNullOrEmpty(prefix) ? localName : prefix + ":" + localName;
+      } finally {
+        reader.close();
       }
+    } catch (XMLStreamException e) {
+      throw new ResourceParseException(
+          "Error parsing xml file '%s': %s.",
+          xmlFile,
+          e.getMessage());
     }
   }
 
+  private XMLStreamReader createXmlStreamReader(InputStream stream) throws XMLStreamException {
+    return xmlInputFactory.createXMLStreamReader(stream);
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    return factory;
+  }
+
   private static Document parseXml(Path filepath, InputStream inputStream)
       throws IOException, ResourceParseException {
     try {
@@ -41,4 +41,13 @@ interface AbstractNetworkCacheArgs {
   String getErrorTextTemplate();
   Optional<Long> getMaxStoreSizeBytes();
   Optional<String> getThriftEndpointPath();
+
+  /**
+   * Whether to download the server's filter of stored rule keys and skip fetching keys that it
+   * rules out. Only Buck's own served dircache publishes one.
+   */
+  @Value.Default
+  default boolean getUseKeyFilter() {
+    return false;
+  }
 }
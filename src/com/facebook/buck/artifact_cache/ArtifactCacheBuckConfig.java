@@ -56,6 +56,7 @@ public class ArtifactCacheBuckConfig {
   private static final String HTTP_WRITE_HEADERS_FIELD_NAME = "http_write_headers";
   private static final String HTTP_CACHE_ERROR_MESSAGE_NAME = "http_error_message_format";
   private static final String HTTP_MAX_STORE_SIZE = "http_max_store_size";
+  private static final String HTTP_KEY_FILTER_FIELD_NAME = "http_key_filter";
   private static final String HTTP_THREAD_POOL_SIZE = "http_thread_pool_size";
   private static final String HTTP_THREAD_POOL_KEEP_ALIVE_DURATION_MILLIS =
       "http_thread_pool_keep_alive_duration_millis";
@@ -67,7 +68,8 @@ public class ArtifactCacheBuckConfig {
       HTTP_READ_HEADERS_FIELD_NAME,
       HTTP_WRITE_HEADERS_FIELD_NAME,
       HTTP_CACHE_ERROR_MESSAGE_NAME,
-      HTTP_MAX_STORE_SIZE);
+      HTTP_MAX_STORE_SIZE,
+      HTTP_KEY_FILTER_FIELD_NAME);
   private static final String HTTP_MAX_FETCH_RETRIES = "http_max_fetch_retries";
 
   // List of names of cache-* sections that contain the fields above. This is used to emulate
@@ -352,6 +354,8 @@ public class ArtifactCacheBuckConfig {
             HTTP_CACHE_ERROR_MESSAGE_NAME,
             DEFAULT_HTTP_CACHE_ERROR_MESSAGE));
     builder.setMaxStoreSize(buckConfig.getLong(section, HTTP_MAX_STORE_SIZE));
+    builder.setUseKeyFilter(
+        buckConfig.getBooleanValue(section, HTTP_KEY_FILTER_FIELD_NAME, false));
     return builder.build();
   }
 
@@ -406,6 +410,7 @@ public class ArtifactCacheBuckConfig {
     protected abstract ImmutableSet<String> getBlacklistedWifiSsids();
     public abstract String getErrorMessageFormat();
     public abstract Optional<Long> getMaxStoreSize();
+    public abstract boolean getUseKeyFilter();
 
     public boolean isWifiUsableForDistributedCache(Optional<String> currentWifiSsid) {
       if (currentWifiSsid.isPresent() &&
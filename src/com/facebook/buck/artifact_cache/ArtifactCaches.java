@@ -345,6 +345,7 @@ public class ArtifactCaches {
             .setBuckEventBus(buckEventBus)
             .setHttpWriteExecutorService(httpWriteExecutorService)
             .setErrorTextTemplate(cacheDescription.getErrorMessageFormat())
+            .setUseKeyFilter(cacheDescription.getUseKeyFilter())
             .build());
   }
 
@@ -57,6 +57,7 @@ public class DirArtifactCache implements ArtifactCache {
   // How much of the max size to leave if we decide to delete old files.
   private static final float MAX_BYTES_TRIM_RATIO = 2 / 3f;
   private static final String TMP_EXTENSION = ".tmp";
+  private static final String METADATA_EXTENSION = ".metadata";
 
   private final String name;
   private final ProjectFilesystem filesystem;
@@ -94,7 +95,7 @@ public class DirArtifactCache implements ArtifactCache {
       try (DataInputStream in =
                new DataInputStream(
                    filesystem.newFileInputStream(
-                       getPathForRuleKey(ruleKey, Optional.of(".metadata"))))) {
+                       getPathForRuleKey(ruleKey, Optional.of(METADATA_EXTENSION))))) {
         int sz = in.readInt();
         for (int i = 0; i < sz; i++) {
           String key = in.readUTF();
@@ -141,7 +142,7 @@ public class DirArtifactCache implements ArtifactCache {
       Optional<Path> borrowedAndStoredArtifactPath = Optional.empty();
       for (RuleKey ruleKey : info.getRuleKeys()) {
         Path artifactPath = getPathForRuleKey(ruleKey, Optional.empty());
-        Path metadataPath = getPathForRuleKey(ruleKey, Optional.of(".metadata"));
+        Path metadataPath = getPathForRuleKey(ruleKey, Optional.of(METADATA_EXTENSION));
 
         if (filesystem.exists(artifactPath) && filesystem.exists(metadataPath)) {
           continue;
@@ -284,6 +285,28 @@ public class DirArtifactCache implements ArtifactCache {
     }
   }
 
+  /**
+   * @return the rule keys of all complete entries in the cache. The metadata file is written after
+   *     the artifact, so its presence is used to tell that an entry is complete.
+   */
+  public ImmutableList<RuleKey> getStoredRuleKeys() throws IOException {
+    ImmutableList.Builder<RuleKey> ruleKeys = ImmutableList.builder();
+    for (Path file : getAllFilesInCache()) {
+      String fileName = file.getFileName().toString();
+      if (!fileName.endsWith(METADATA_EXTENSION)) {
+        continue;
+      }
+      try {
+        ruleKeys.add(
+            new RuleKey(
+                fileName.substring(0, fileName.length() - METADATA_EXTENSION.length())));
+      } catch (IllegalArgumentException e) {
+        LOG.debug("Ignoring unexpected file in cache: %s", file);
+      }
+    }
+    return ruleKeys.build();
+  }
+
   @VisibleForTesting
   List<Path> getAllFilesInCache() throws IOException {
     final List<Path> allFiles = new ArrayList<>();
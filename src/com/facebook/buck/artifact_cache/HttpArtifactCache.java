@@ -21,6 +21,9 @@ import com.facebook.buck.io.LazyPath;
 import com.facebook.buck.log.Logger;
 import com.facebook.buck.rules.RuleKey;
 import com.facebook.buck.slb.HttpResponse;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.BloomFilter;
 import com.google.common.io.ByteSource;
 
 import java.io.DataInputStream;
@@ -30,6 +33,7 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -48,8 +52,37 @@ public final class HttpArtifactCache extends AbstractNetworkCache {
    */
   private static final Logger LOG = Logger.get(HttpArtifactCache.class);
 
+  private final Supplier<Optional<BloomFilter<RuleKey>>> keyFilter;
+
   public HttpArtifactCache(NetworkCacheArgs args) {
     super(args);
+    this.keyFilter = args.getUseKeyFilter() ?
+        Suppliers.memoize(this::fetchKeyFilter) :
+        Suppliers.ofInstance(Optional.empty());
+  }
+
+  /**
+   * Downloads the filter of rule keys stored on the server once per cache instance. Any failure
+   * just means every key gets fetched, as it would without a filter.
+   */
+  private Optional<BloomFilter<RuleKey>> fetchKeyFilter() {
+    try (HttpResponse response = fetchClient.makeRequest(
+        "/artifacts/key_filter",
+        new Request.Builder().get())) {
+      if (response.code() != HttpURLConnection.HTTP_OK) {
+        LOG.info(
+            "fetch(%s): no key filter available: %d",
+            response.requestUrl(),
+            response.code());
+        return Optional.empty();
+      }
+      try (InputStream input = response.getBody()) {
+        return Optional.of(HttpArtifactCacheBinaryProtocol.readRuleKeyFilter(input));
+      }
+    } catch (IOException e) {
+      LOG.info(e, "Failed to fetch the key filter, fetching every key instead.");
+      return Optional.empty();
+    }
   }
 
   @Override
@@ -58,6 +91,15 @@ public final class HttpArtifactCache extends AbstractNetworkCache {
       LazyPath output,
       final Finished.Builder eventBuilder) throws IOException {
 
+    // Skip the round trip for rule keys the server's key filter says it has never stored. After a
+    // large change most rule keys are new, and each of them would otherwise cost a request just to
+    // be told it's a miss. The miss is still reported like any other fetch result.
+    Optional<BloomFilter<RuleKey>> filter = keyFilter.get();
+    if (filter.isPresent() && !filter.get().mightContain(ruleKey)) {
+      LOG.info("fetch(%s): cache miss, not in the key filter", ruleKey);
+      return CacheResult.miss();
+    }
+
     Request.Builder requestBuilder =
         new Request.Builder()
             .get();
@@ -24,6 +24,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
@@ -40,6 +42,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -50,6 +53,10 @@ public class HttpArtifactCacheBinaryProtocol {
   private static final HashFunction HASH_FUNCTION = Hashing.crc32();
   // 64MB should be enough for everyone.
   private static final long MAX_METADATA_HEADER_SIZE = 64 * 1024 * 1024;
+  private static final Funnel<RuleKey> RULE_KEY_FUNNEL =
+      (ruleKey, into) -> into.putBytes(ruleKey.getHashCode().asBytes());
+  // Roughly 10 bits per stored key; one in a hundred missing keys still costs a round trip.
+  private static final double RULE_KEY_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
 
   private HttpArtifactCacheBinaryProtocol() {
     // Utility class, don't instantiate.
@@ -86,6 +93,27 @@ public class HttpArtifactCacheBinaryProtocol {
     return result.build();
   }
 
+  /**
+   * Writes a Bloom filter of the given rule keys, which lets clients skip fetching keys that are
+   * definitely not in the cache.
+   */
+  public static void writeRuleKeyFilter(
+      Collection<RuleKey> ruleKeys,
+      OutputStream output) throws IOException {
+    BloomFilter<RuleKey> filter = BloomFilter.create(
+        RULE_KEY_FUNNEL,
+        Math.max(ruleKeys.size(), 1),
+        RULE_KEY_FILTER_FALSE_POSITIVE_PROBABILITY);
+    for (RuleKey ruleKey : ruleKeys) {
+      filter.put(ruleKey);
+    }
+    filter.writeTo(output);
+  }
+
+  public static BloomFilter<RuleKey> readRuleKeyFilter(InputStream input) throws IOException {
+    return BloomFilter.readFrom(input, RULE_KEY_FUNNEL);
+  }
+
   public static MetadataAndPayloadReadResultInternal readMetadataAndPayload(
       DataInputStream input,
       OutputStream payloadSink) throws IOException {
@@ -271,11 +299,21 @@ public class HttpArtifactCacheBinaryProtocol {
 
     public void write(OutputStream responseSink) throws IOException {
       try (DataOutputStream dataOutputStream = new DataOutputStream(responseSink)) {
-        dataOutputStream.writeInt(rawMetadata.length);
-        dataOutputStream.write(rawMetadata);
+        writeMetadata(dataOutputStream);
         ByteStreams.copy(payloadSource.openStream(), responseSink);
       }
     }
+
+    /**
+     * Writes everything up to, but not including, the payload. This lets callers with a cheaper
+     * way of sending the payload than copying it through a stream transfer it themselves.
+     */
+    public void writeMetadata(OutputStream responseSink) throws IOException {
+      DataOutputStream dataOutputStream = new DataOutputStream(responseSink);
+      dataOutputStream.writeInt(rawMetadata.length);
+      dataOutputStream.write(rawMetadata);
+      dataOutputStream.flush();
+    }
   }
 
   abstract static class MetadataAndPayloadReadResult {
@@ -22,8 +22,10 @@ import com.facebook.buck.httpserver.WebServer;
 import com.facebook.buck.jvm.core.JavaPackageFinder;
 import com.facebook.buck.parser.Parser;
 import com.facebook.buck.rules.ActionGraphCache;
+import com.facebook.buck.rules.BuildInfoStoreManager;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.KnownBuildRuleTypesFactory;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.shell.WorkerProcessPool;
 import com.facebook.buck.step.ExecutorPool;
 import com.facebook.buck.timing.Clock;
@@ -33,6 +35,7 @@ import com.facebook.buck.util.cache.FileHashCache;
 import com.facebook.buck.util.environment.BuildEnvironmentDescription;
 import com.facebook.buck.util.environment.Platform;
 import com.facebook.buck.util.immutables.BuckStyleImmutable;
+import com.facebook.buck.util.perf.ProcessTracker;
 import com.facebook.buck.versions.VersionedTargetGraphCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Supplier;
@@ -77,6 +80,8 @@ public interface AbstractCommandRunnerParams {
 
   Optional<ProcessManager> getProcessManager();
 
+  Optional<ProcessTracker> getProcessTracker();
+
   Optional<WebServer> getWebServer();
 
   Optional<ConcurrentMap<String, WorkerProcessPool>> getPersistentWorkerPools();
@@ -85,6 +90,10 @@ public interface AbstractCommandRunnerParams {
 
   FileHashCache getFileHashCache();
 
+  OnDiskBuildInfoCache getOnDiskBuildInfoCache();
+
+  BuildInfoStoreManager getBuildInfoStoreManager();
+
   Map<ExecutorPool, ListeningExecutorService> getExecutors();
 
   BuildEnvironmentDescription getBuildEnvironmentDescription();
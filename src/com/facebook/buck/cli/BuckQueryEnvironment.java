@@ -16,6 +16,7 @@
 
 package com.facebook.buck.cli;
 
+import com.facebook.buck.graph.AbstractBreadthFirstTraversal;
 import com.facebook.buck.io.MorePaths;
 import com.facebook.buck.io.ProjectFilesystem;
 import com.facebook.buck.json.BuildFileParseException;
@@ -38,13 +39,14 @@ import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.TargetGraph;
 import com.facebook.buck.rules.TargetNode;
 import com.facebook.buck.rules.TargetNodes;
-import com.facebook.buck.util.concurrent.MostExecutors;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListeningExecutorService;
 
@@ -75,6 +77,9 @@ public class BuckQueryEnvironment implements QueryEnvironment {
   private final Map<BuildTarget, QueryTarget> buildTargetToQueryTarget = new HashMap<>();
 
   private QueryTargetGraph graph = new QueryTargetGraph(TargetGraph.EMPTY);
+  // Exact index of the nodes in `graph`. The graph's own lookups fall back to the unflavored node
+  // for a flavored target, handing out a copy that isn't part of the graph and has no edges in it.
+  private ImmutableMap<BuildTarget, TargetNode<?, ?>> graphNodes = ImmutableMap.of();
 
   private BuckQueryEnvironment(
       Cell rootCell,
@@ -187,27 +192,22 @@ public class BuckQueryEnvironment implements QueryEnvironment {
           target,
           target.getClass().getName()));
     }
-    ListeningExecutorService executor = null;
+    BuildTarget buildTarget = ((QueryBuildTarget) target).getBuildTarget();
+    // Nodes in the current graph have already been parsed, so avoid the round trip through the
+    // parse pipeline (and its cache locking) for them.
+    TargetNode<?, ?> node = graphNodes.get(buildTarget);
+    if (node != null) {
+      return node;
+    }
     try {
-      executor = com.google.common.util.concurrent.MoreExecutors.listeningDecorator(
-          MostExecutors.newSingleThreadExecutor("buck query.getNode"));
-      return parserState.getTargetNode(((QueryBuildTarget) target).getBuildTarget());
+      return parserState.getTargetNode(buildTarget);
     } catch (BuildTargetException | BuildFileParseException e) {
       throw new QueryException(e, "Error getting target node for %s\n%s", target, e.getMessage());
-    } finally {
-      if (executor != null) {
-        executor.shutdown();
-      }
     }
   }
 
   private QueryTarget getOrCreateQueryBuildTarget(BuildTarget buildTarget) {
-    if (buildTargetToQueryTarget.containsKey(buildTarget)) {
-      return buildTargetToQueryTarget.get(buildTarget);
-    }
-    QueryBuildTarget queryBuildTarget = QueryBuildTarget.of(buildTarget);
-    buildTargetToQueryTarget.put(buildTarget, queryBuildTarget);
-    return queryBuildTarget;
+    return buildTargetToQueryTarget.computeIfAbsent(buildTarget, QueryBuildTarget::of);
   }
 
   public ImmutableSet<QueryTarget> getTargetsFromBuildTargetsContainer(
@@ -228,15 +228,6 @@ public class BuckQueryEnvironment implements QueryEnvironment {
     return builder.build();
   }
 
-  /** Given a set of target nodes, returns the build targets. */
-  private static Set<BuildTarget> getTargetsFromNodes(Iterable<TargetNode<?, ?>> input) {
-    Set<BuildTarget> result = new LinkedHashSet<>();
-    for (TargetNode<?, ?> node : input) {
-      result.add(node.getBuildTarget());
-    }
-    return result;
-  }
-
   @Override
   public Set<QueryTarget> getFwdDeps(Iterable<QueryTarget> targets)
       throws QueryException, InterruptedException {
@@ -266,15 +257,24 @@ public class BuckQueryEnvironment implements QueryEnvironment {
     for (QueryTarget target : targets) {
       nodes.add(getNode(target));
     }
-    // Reusing the existing getSubgraph() for simplicity. It builds the graph when we only need the
-    // nodes. The impact of creating the edges in terms of time and space should be minimal.
-    return getTargetsFromBuildTargetsContainer(graph.getSubgraph(nodes).getNodes());
+    // Only the nodes are needed here, so walk the existing graph rather than materializing a
+    // subgraph with all of its edges, which is expensive for large closures.
+    final Set<TargetNode<?, ?>> closure = new LinkedHashSet<>();
+    new AbstractBreadthFirstTraversal<TargetNode<?, ?>>(nodes) {
+      @Override
+      public ImmutableSet<TargetNode<?, ?>> visit(TargetNode<?, ?> node) {
+        closure.add(node);
+        return graph.getOutgoingNodesFor(node);
+      }
+    }.start();
+    return getTargetsFromBuildTargetsContainer(closure);
   }
 
   private void buildGraphForBuildTargets(Set<BuildTarget> targets)
       throws QueryException, InterruptedException {
     try {
       graph = new QueryTargetGraph(parserState.buildTargetGraph(targets));
+      graphNodes = Maps.uniqueIndex(graph.getNodes(), HasBuildTarget::getBuildTarget);
     } catch (BuildFileParseException | BuildTargetException | IOException e) {
       throw new QueryException(e, "Error in building dependency graph");
     }
@@ -287,22 +287,21 @@ public class BuckQueryEnvironment implements QueryEnvironment {
       ListeningExecutorService executor)
       throws QueryException, InterruptedException {
     // Filter QueryTargets that are build targets and not yet present in the build target graph.
-    Set<BuildTarget> graphTargets = getTargetsFromNodes(graph.getNodes());
+    // Lookups go straight to the index of the graph's nodes so that repeated calls on an
+    // already-built closure don't have to copy every node in the graph.
     Set<BuildTarget> newBuildTargets = new HashSet<>();
     for (QueryTarget target : targets) {
       if (target instanceof QueryBuildTarget) {
         BuildTarget buildTarget = ((QueryBuildTarget) target).getBuildTarget();
-        if (!graphTargets.contains(buildTarget)) {
+        if (!graphNodes.containsKey(buildTarget)) {
           newBuildTargets.add(buildTarget);
         }
       }
     }
     if (!newBuildTargets.isEmpty()) {
-      buildGraphForBuildTargets(Sets.union(newBuildTargets, graphTargets));
-      for (BuildTarget buildTarget : getTargetsFromNodes(graph.getNodes())) {
-        if (!buildTargetToQueryTarget.containsKey(buildTarget)) {
-          buildTargetToQueryTarget.put(buildTarget, QueryBuildTarget.of(buildTarget));
-        }
+      buildGraphForBuildTargets(Sets.union(newBuildTargets, graphNodes.keySet()));
+      for (BuildTarget buildTarget : graphNodes.keySet()) {
+        getOrCreateQueryBuildTarget(buildTarget);
       }
     }
   }
@@ -38,6 +38,7 @@ import com.facebook.buck.io.ProjectFilesystem;
 import com.facebook.buck.json.BuildFileParseException;
 import com.facebook.buck.jvm.java.JavaBuckConfig;
 import com.facebook.buck.log.CommandThreadFactory;
+import com.facebook.buck.log.Logger;
 import com.facebook.buck.model.BuildTarget;
 import com.facebook.buck.model.BuildTargetException;
 import com.facebook.buck.model.HasBuildTarget;
@@ -51,6 +52,7 @@ import com.facebook.buck.rules.ActionGraph;
 import com.facebook.buck.rules.ActionGraphAndResolver;
 import com.facebook.buck.rules.BuildEngine;
 import com.facebook.buck.rules.BuildEvent;
+import com.facebook.buck.rules.BuildInfoStoreManager;
 import com.facebook.buck.rules.BuildRule;
 import com.facebook.buck.rules.BuildRuleResolver;
 import com.facebook.buck.rules.CachingBuildEngine;
@@ -59,6 +61,7 @@ import com.facebook.buck.rules.CachingBuildEngineDelegate;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.ConstructorArgMarshaller;
 import com.facebook.buck.rules.LocalCachingBuildEngineDelegate;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraphAndBuildTargets;
 import com.facebook.buck.rules.TargetNode;
@@ -109,6 +112,8 @@ import javax.annotation.Nullable;
 
 public class BuildCommand extends AbstractCommand {
 
+  private static final Logger LOG = Logger.get(BuildCommand.class);
+
   private static final String KEEP_GOING_LONG_ARG = "--keep-going";
   private static final String BUILD_REPORT_LONG_ARG = "--build-report";
   private static final String JUST_BUILD_LONG_ARG = "--just-build";
@@ -295,7 +300,9 @@ public class BuildCommand extends AbstractCommand {
       Clock clock,
       Optional<AdbOptions> adbOptions,
       Optional<TargetDeviceOptions> targetDeviceOptions,
-      Map<ExecutorPool, ListeningExecutorService> executors) {
+      Map<ExecutorPool, ListeningExecutorService> executors,
+      OnDiskBuildInfoCache onDiskBuildInfoCache,
+      BuildInfoStoreManager buildInfoStoreManager) {
     if (console.getVerbosity() == Verbosity.ALL) {
       console.getStdErr().printf("Creating a build with %d threads.\n", buckConfig.getNumThreads());
     }
@@ -323,7 +330,9 @@ public class BuildCommand extends AbstractCommand {
         adbOptions,
         targetDeviceOptions,
         persistentWorkerPools,
-        executors);
+        executors,
+        onDiskBuildInfoCache,
+        buildInfoStoreManager);
   }
 
   @Nullable
@@ -661,6 +670,9 @@ public class BuildCommand extends AbstractCommand {
       Iterable<? extends HasBuildTarget> targetsToBuild) throws IOException, InterruptedException {
     CachingBuildEngineBuckConfig cachingBuildEngineBuckConfig =
         rootCellBuckConfig.getView(CachingBuildEngineBuckConfig.class);
+    ResourceAmountsHistory resourceAmountsHistory =
+        ResourceAmountsHistory.load(params.getCell().getFilesystem(), params.getObjectMapper());
+    resourceAmountsHistory.startRecording(params.getBuckEventBus());
     try (Build build = createBuild(
         rootCellBuckConfig,
         actionGraphAndResolver.getActionGraph(),
@@ -679,7 +691,10 @@ public class BuildCommand extends AbstractCommand {
             params.getObjectMapper(),
             actionGraphAndResolver.getResolver(),
             rootCellBuckConfig.getKeySeed(),
-            cachingBuildEngineBuckConfig.getResourceAwareSchedulingInfo()),
+            resourceAmountsHistory.applyTo(
+                cachingBuildEngineBuckConfig.getResourceAwareSchedulingInfo(),
+                rootCellBuckConfig.getMaximumResourceAmounts().getMemory(),
+                params.getBuildEnvironmentDescription().getSystemMemory())),
         artifactCache,
         params.getConsole(),
         params.getBuckEventBus(),
@@ -691,7 +706,9 @@ public class BuildCommand extends AbstractCommand {
         params.getClock(),
         Optional.empty(),
         Optional.empty(),
-        params.getExecutors())) {
+        params.getExecutors(),
+        params.getOnDiskBuildInfoCache(),
+        params.getBuildInfoStoreManager())) {
       lastBuild = build;
       return build.executeAndPrintFailuresToEventBus(
           targetsToBuild,
@@ -699,6 +716,14 @@ public class BuildCommand extends AbstractCommand {
           params.getBuckEventBus(),
           params.getConsole(),
           getPathToBuildReport(rootCellBuckConfig));
+    } finally {
+      try {
+        resourceAmountsHistory.stopRecordingAndSave(
+            params.getBuckEventBus(),
+            params.getProcessTracker());
+      } catch (IOException e) {
+        LOG.warn(e, "Unable to save resource amounts history.");
+      }
     }
   }
 
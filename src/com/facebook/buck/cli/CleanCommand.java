@@ -16,28 +16,90 @@
 
 package com.facebook.buck.cli;
 
+import com.facebook.buck.event.ConsoleEvent;
 import com.facebook.buck.event.listener.JavaUtilsLoggingBuildListener;
+import com.facebook.buck.io.ParallelFileDeleter;
 import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.json.BuildFileParseException;
 import com.facebook.buck.jvm.java.intellij.Project;
+import com.facebook.buck.model.BuildTargetException;
+import com.facebook.buck.parser.ParserConfig;
+import com.facebook.buck.rules.ActionGraphAndResolver;
+import com.facebook.buck.rules.StaleOutputCollector;
+import com.facebook.buck.rules.TargetGraphAndBuildTargets;
+import com.facebook.buck.util.MoreExceptions;
+import com.facebook.buck.util.concurrent.MostExecutors;
+import com.facebook.buck.util.unit.SizeUnit;
+import com.facebook.buck.versions.VersionException;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 public class CleanCommand extends AbstractCommand {
 
+  private static final int DEFAULT_KEEP_DAYS = 7;
+
+  // Deleting is mostly waiting on the filesystem, so a few threads speed it up, but more just
+  // contend for the same disk.
+  private static final int DELETION_THREADS = 4;
+
   @Option(
       name = "--project",
       aliases = { "-p" },
       usage = "Delete files generated by `buck project`.")
   private boolean isCleanBuckProjectFiles = false;
 
+  @Option(
+      name = "--stale",
+      usage = "Only delete the outputs of rules which aren't in the action graph of the given " +
+          "targets, and which haven't been built in the last --keep-days days.")
+  private boolean isCleanStaleOutputs = false;
+
+  @Option(
+      name = "--keep-days",
+      usage = "With --stale, keep the outputs of rules built in this many days. Defaults to " +
+          DEFAULT_KEEP_DAYS + ".")
+  private int keepDays = DEFAULT_KEEP_DAYS;
+
+  @Argument
+  private List<String> arguments = Lists.newArrayList();
+
   public boolean isCleanBuckProjectFiles() {
     return isCleanBuckProjectFiles;
   }
 
+  public boolean isCleanStaleOutputs() {
+    return isCleanStaleOutputs;
+  }
+
+  public List<String> getArguments() {
+    return arguments;
+  }
+
   @Override
-  public int runWithoutHelp(CommandRunnerParams params) throws IOException {
+  public int runWithoutHelp(CommandRunnerParams params) throws IOException, InterruptedException {
+    if (isCleanStaleOutputs()) {
+      return cleanStaleOutputs(params);
+    }
+    if (!getArguments().isEmpty()) {
+      params.getBuckEventBus().post(ConsoleEvent.severe(
+          "Targets can only be given to `buck clean` together with --stale."));
+      return 1;
+    }
+
     // Ideally, we would like the implementation of this method to be as simple as:
     //
     // getProjectFilesystem().deleteRecursivelyIfExists(BuckConstant.BUCK_OUTPUT_DIRECTORY);
@@ -76,6 +138,80 @@ public class CleanCommand extends AbstractCommand {
     return 0;
   }
 
+  private int cleanStaleOutputs(CommandRunnerParams params)
+      throws IOException, InterruptedException {
+    if (getArguments().isEmpty()) {
+      params.getBuckEventBus().post(ConsoleEvent.severe(
+          "Please specify the targets whose outputs should be kept."));
+      return 1;
+    }
+
+    ActionGraphAndResolver actionGraphAndResolver;
+    try (CommandThreadManager pool = new CommandThreadManager(
+        "Clean",
+        getConcurrencyLimit(params.getBuckConfig()))) {
+      ParserConfig parserConfig = params.getBuckConfig().getView(ParserConfig.class);
+      TargetGraphAndBuildTargets result = params.getParser()
+          .buildTargetGraphForTargetNodeSpecs(
+              params.getBuckEventBus(),
+              params.getCell(),
+              getEnableParserProfiling(),
+              pool.getExecutor(),
+              parseArgumentsAsTargetNodeSpecs(
+                  params.getBuckConfig(),
+                  getArguments()),
+              /* ignoreBuckAutodepsFiles */ false,
+              parserConfig.getDefaultFlavorsMode());
+      if (params.getBuckConfig().getBuildVersions()) {
+        result = toVersionedTargetGraph(params, result);
+      }
+      actionGraphAndResolver = Preconditions.checkNotNull(
+          params.getActionGraphCache().getActionGraph(
+              params.getBuckEventBus(),
+              params.getBuckConfig().isActionGraphCheckingEnabled(),
+              result.getTargetGraph(),
+              params.getBuckConfig().getKeySeed()));
+    } catch (BuildTargetException | BuildFileParseException | VersionException e) {
+      params.getBuckEventBus().post(ConsoleEvent.severe(
+          MoreExceptions.getHumanReadableOrLocalizedMessage(e)));
+      return 1;
+    }
+
+    // Moving the stale outputs out of the way first means an interrupted clean leaves them in the
+    // trash, which the next buck command cleans up in the background.
+    ProjectFilesystem projectFilesystem = params.getCell().getFilesystem();
+    Path trashDirectory = projectFilesystem.getBuckPaths().getTrashDir()
+        .resolve(params.getBuckEventBus().getBuildId().toString());
+    ImmutableSortedMap<Path, Long> staleOutputs =
+        new StaleOutputCollector(
+            projectFilesystem,
+            params.getBuildInfoStoreManager().get(projectFilesystem),
+            params.getObjectMapper())
+            .collect(
+                actionGraphAndResolver.getActionGraph().getNodes(),
+                FileTime.fromMillis(
+                    params.getClock().currentTimeMillis() - TimeUnit.DAYS.toMillis(keepDays)),
+                trashDirectory);
+
+    long bytesDeleted;
+    ListeningExecutorService deletionExecutor = MoreExecutors.listeningDecorator(
+        MostExecutors.newMultiThreadExecutor("Clean", DELETION_THREADS));
+    try {
+      bytesDeleted = new ParallelFileDeleter(deletionExecutor)
+          .deleteRecursively(ImmutableList.of(projectFilesystem.resolve(trashDirectory)));
+    } finally {
+      deletionExecutor.shutdownNow();
+    }
+
+    params.getConsole().getStdOut().printf(
+        "Deleted %d stale outputs, reclaiming %s.\n",
+        staleOutputs.size(),
+        SizeUnit.toHumanReadableString(
+            SizeUnit.getHumanReadableSize(bytesDeleted, SizeUnit.BYTES),
+            Locale.getDefault()));
+    return 0;
+  }
+
   @Override
   public boolean isReadOnly() {
     return false;
@@ -132,7 +132,9 @@ public class FetchCommand extends BuildCommand {
           params.getClock(),
           Optional.empty(),
           Optional.empty(),
-          params.getExecutors())) {
+          params.getExecutors(),
+          params.getOnDiskBuildInfoCache(),
+          params.getBuildInfoStoreManager())) {
         exitCode = build.executeAndPrintFailuresToEventBus(
             buildTargets,
             isKeepGoing(),
@@ -160,6 +160,8 @@ final class JavaBuildGraphProcessor {
           .setCellPathResolver(params.getCell().getCellPathResolver())
           .build();
 
+      params.getOnDiskBuildInfoCache().startBuild(eventBus.getBuildId());
+      params.getBuildInfoStoreManager().refresh();
       BuildEngineBuildContext buildContext = BuildEngineBuildContext.builder()
           .setBuildContext(BuildContext.builder()
               // Note we do not create a real action graph because we do not need one.
@@ -173,6 +175,8 @@ final class JavaBuildGraphProcessor {
           .setObjectMapper(params.getObjectMapper())
           .setEnvironment(executionContext.getEnvironment())
           .setKeepGoing(false)
+          .setOnDiskBuildInfoCache(params.getOnDiskBuildInfoCache())
+          .setBuildInfoStoreManager(params.getBuildInfoStoreManager())
           .build();
 
       // Traverse the TargetGraph to find all of the auto-generated dependencies.
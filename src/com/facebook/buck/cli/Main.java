@@ -75,12 +75,15 @@ import com.facebook.buck.model.BuildId;
 import com.facebook.buck.parser.Parser;
 import com.facebook.buck.parser.ParserConfig;
 import com.facebook.buck.rules.ActionGraphCache;
+import com.facebook.buck.rules.BuildInfoStoreManager;
+import com.facebook.buck.rules.CachingBuildEngineBuckConfig;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.CellProvider;
 import com.facebook.buck.rules.ConstructorArgMarshaller;
 import com.facebook.buck.rules.DefaultCellPathResolver;
 import com.facebook.buck.rules.KnownBuildRuleTypes;
 import com.facebook.buck.rules.KnownBuildRuleTypesFactory;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.rules.RelativeCellName;
 import com.facebook.buck.rules.coercer.DefaultTypeCoercerFactory;
 import com.facebook.buck.rules.coercer.TypeCoercerFactory;
@@ -159,7 +162,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
@@ -325,6 +330,8 @@ public final class Main {
     private final Parser parser;
     private final DefaultFileHashCache hashCache;
     private final FileHashCache buckOutHashCache;
+    private final OnDiskBuildInfoCache onDiskBuildInfoCache;
+    private final BuildInfoStoreManager buildInfoStoreManager;
     private final EventBus fileEventBus;
     private final Optional<WebServer> webServer;
     private final ConcurrentMap<String, WorkerProcessPool> persistentWorkerPools;
@@ -344,6 +351,10 @@ public final class Main {
           DefaultFileHashCache.createBuckOutFileHashCache(
               createProjectFilesystem(cell.getFilesystem().getRootPath()),
               cell.getFilesystem().getBuckPaths().getBuckOut());
+      this.onDiskBuildInfoCache = new OnDiskBuildInfoCache();
+      this.buildInfoStoreManager = new BuildInfoStoreManager(
+          cell.getBuckConfig().getView(CachingBuildEngineBuckConfig.class)
+              .getBuildMetadataStorage());
       this.fileEventBus = new EventBus("file-change-events");
 
       this.broadcastEventListener = new BroadcastEventListener();
@@ -465,6 +476,14 @@ public final class Main {
       return buckOutHashCache;
     }
 
+    private OnDiskBuildInfoCache getOnDiskBuildInfoCache() {
+      return onDiskBuildInfoCache;
+    }
+
+    private BuildInfoStoreManager getBuildInfoStoreManager() {
+      return buildInfoStoreManager;
+    }
+
     private ConcurrentMap<String, WorkerProcessPool> getPersistentWorkerPools() {
       return persistentWorkerPools;
     }
@@ -542,6 +561,7 @@ public final class Main {
     public void close() throws IOException {
       shutdownPersistentWorkerPools();
       shutdownWebServer();
+      buildInfoStoreManager.close();
     }
 
     private void shutdownPersistentWorkerPools() {
@@ -898,6 +918,10 @@ public final class Main {
           filesystem.writeContentsToPath(
               BuckVersion.getVersion(),
               BuckConstant.getCurrentVersionFile());
+        } else if (isNonEmptyDirectory(filesystem.resolve(BuckConstant.getTrashPath()))) {
+          // Finish off trash left behind by a command which was interrupted before it, or the
+          // trash cleaner, could delete it.
+          shouldCleanUpTrash = true;
         }
       }
 
@@ -1193,6 +1217,8 @@ public final class Main {
           Parser parser = null;
           VersionedTargetGraphCache versionedTargetGraphCache = null;
           ActionGraphCache actionGraphCache = null;
+          OnDiskBuildInfoCache onDiskBuildInfoCache = null;
+          BuildInfoStoreManager buildInfoStoreManager = null;
 
           if (isDaemon) {
             try {
@@ -1215,6 +1241,8 @@ public final class Main {
                   watchmanFreshInstanceAction);
               versionedTargetGraphCache = daemon.getVersionedTargetGraphCache();
               actionGraphCache = daemon.getActionGraphCache();
+              onDiskBuildInfoCache = daemon.getOnDiskBuildInfoCache();
+              buildInfoStoreManager = daemon.getBuildInfoStoreManager();
             } catch (WatchmanWatcherException | IOException e) {
               buildEventBus.post(
                   ConsoleEvent.warning(
@@ -1231,6 +1259,16 @@ public final class Main {
             actionGraphCache = new ActionGraphCache(broadcastEventListener);
           }
 
+          if (onDiskBuildInfoCache == null) {
+            onDiskBuildInfoCache = new OnDiskBuildInfoCache();
+          }
+
+          if (buildInfoStoreManager == null) {
+            buildInfoStoreManager = new BuildInfoStoreManager(
+                rootCell.getBuckConfig().getView(CachingBuildEngineBuckConfig.class)
+                    .getBuildMetadataStorage());
+          }
+
           if (parser == null) {
             TypeCoercerFactory typeCoercerFactory = new DefaultTypeCoercerFactory(objectMapper);
             parser = new Parser(
@@ -1291,10 +1329,13 @@ public final class Main {
                   .setObjectMapper(objectMapper)
                   .setClock(clock)
                   .setProcessManager(processManager)
+                  .setProcessTracker(Optional.ofNullable(processTracker))
                   .setPersistentWorkerPools(persistentWorkerPools)
                   .setWebServer(webServer)
                   .setBuckConfig(buckConfig)
                   .setFileHashCache(fileHashCache)
+                  .setOnDiskBuildInfoCache(onDiskBuildInfoCache)
+                  .setBuildInfoStoreManager(buildInfoStoreManager)
                   .setExecutors(executors)
                   .setBuildEnvironmentDescription(buildEnvironmentDescription)
                   .setVersionedTargetGraphCache(versionedTargetGraphCache)
@@ -1398,6 +1439,15 @@ public final class Main {
     }
   }
 
+  private static boolean isNonEmptyDirectory(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return false;
+    }
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+      return entries.iterator().hasNext();
+    }
+  }
+
   private static final Watchman buildWatchman(
       Optional<NGContext> context,
       ParserConfig parserConfig,
@@ -46,6 +46,7 @@ import com.facebook.buck.model.FilesystemBackedBuildFileTree;
 import com.facebook.buck.model.HasBuildTarget;
 import com.facebook.buck.model.UnflavoredBuildTarget;
 import com.facebook.buck.parser.BuildFileSpec;
+import com.facebook.buck.parser.NoSuchBuildTargetException;
 import com.facebook.buck.parser.ParserConfig;
 import com.facebook.buck.parser.SpeculativeParsing;
 import com.facebook.buck.parser.TargetNodePredicateSpec;
@@ -56,6 +57,7 @@ import com.facebook.buck.rules.ActionGraphCache;
 import com.facebook.buck.rules.AssociatedTargetNodePredicate;
 import com.facebook.buck.rules.BuildRuleResolver;
 import com.facebook.buck.rules.BuildRuleType;
+import com.facebook.buck.rules.DefaultTargetNodeToBuildRuleTransformer;
 import com.facebook.buck.rules.Description;
 import com.facebook.buck.rules.ProjectConfig;
 import com.facebook.buck.rules.SourcePathResolver;
@@ -75,6 +77,7 @@ import com.facebook.buck.util.ProcessManager;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Charsets;
+import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
@@ -959,6 +962,30 @@ public class ProjectCommand extends BuildCommand {
     return forcedTargets.containsAll(passedInTargetsSet);
   }
 
+  /**
+   * The same generated sources and headers are resolved from many targets, projects and
+   * workspaces, so every lookup shares one resolver over the whole target graph. Rules are only
+   * created for the nodes which are actually looked up (and their deps), once each.
+   */
+  @VisibleForTesting
+  static Function<TargetNode<?, ?>, SourcePathResolver> createSourcePathResolverForNode(
+      TargetGraph targetGraph) {
+    final BuildRuleResolver ruleResolver =
+        new BuildRuleResolver(targetGraph, new DefaultTargetNodeToBuildRuleTransformer());
+    final SourcePathResolver pathResolver = new SourcePathResolver(ruleResolver);
+    return input -> {
+      // Projects are generated concurrently, and requireRule can't race on the same target.
+      synchronized (ruleResolver) {
+        try {
+          ruleResolver.requireRule(input.getBuildTarget());
+        } catch (NoSuchBuildTargetException e) {
+          throw new HumanReadableException(e);
+        }
+      }
+      return pathResolver;
+    };
+  }
+
   @VisibleForTesting
   static ImmutableSet<BuildTarget> generateWorkspacesForTargets(
       final CommandRunnerParams params,
@@ -982,6 +1009,8 @@ public class ProjectCommand extends BuildCommand {
 
     LOG.debug("Generating workspace for config targets %s", targets);
     ImmutableSet.Builder<BuildTarget> requiredBuildTargetsBuilder = ImmutableSet.builder();
+    final Function<TargetNode<?, ?>, SourcePathResolver> sourcePathResolverForNode =
+        createSourcePathResolverForNode(targetGraphAndTargets.getTargetGraph());
     for (final BuildTarget inputTarget : targets) {
       TargetNode<?, ?> inputNode = targetGraphAndTargets.getTargetGraph().get(inputTarget);
       XcodeWorkspaceConfigDescription.Arg workspaceArgs;
@@ -1022,10 +1051,7 @@ public class ProjectCommand extends BuildCommand {
           params.getCell().getKnownBuildRuleTypes().getCxxPlatforms(),
           defaultCxxPlatform,
           params.getBuckConfig().getView(ParserConfig.class).getBuildFileName(),
-          input -> new SourcePathResolver(
-              ActionGraphCache.getFreshActionGraph(params.getBuckEventBus(),
-                  targetGraphAndTargets.getTargetGraph().getSubgraph(
-                  ImmutableSet.of(input))).getResolver()),
+          sourcePathResolverForNode,
           params.getBuckEventBus(),
           halideBuckConfig,
           cxxBuckConfig,
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.cli;
+
+import com.facebook.buck.event.BuckEventBus;
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.log.Logger;
+import com.facebook.buck.rules.CachingBuildEngine;
+import com.facebook.buck.rules.ResourceAwareSchedulingInfo;
+import com.facebook.buck.util.ProcessResourceConsumption;
+import com.facebook.buck.util.concurrent.ResourceAmounts;
+import com.facebook.buck.util.perf.ProcessTracker;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.Subscribe;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Peak resident memory of the processes run by each build rule type, as observed by the
+ * {@link ProcessTracker} in previous builds and persisted in buck-out. Rule types that aren't
+ * given explicit amounts in the config are scheduled with a memory weight derived from this
+ * history, so that a handful of memory-hungry linkers don't get run alongside each other just
+ * because they are weighted the same as a tiny genrule.
+ */
+class ResourceAmountsHistory {
+
+  private static final Logger LOG = Logger.get(ResourceAmountsHistory.class);
+
+  @VisibleForTesting
+  static final String HISTORY_FILE = "resource_amounts.json";
+
+  private static final long PENDING_REPORTS_TIMEOUT_MS = 5000;
+
+  private final ProjectFilesystem filesystem;
+  private final ObjectMapper objectMapper;
+  private final Map<String, Long> peakMemoryPerRuleType;
+  private final Map<String, Long> observedPeakMemoryPerRuleType = new ConcurrentHashMap<>();
+
+  private ResourceAmountsHistory(
+      ProjectFilesystem filesystem,
+      ObjectMapper objectMapper,
+      Map<String, Long> peakMemoryPerRuleType) {
+    this.filesystem = filesystem;
+    this.objectMapper = objectMapper;
+    this.peakMemoryPerRuleType = peakMemoryPerRuleType;
+  }
+
+  /**
+   * Reads the history recorded by previous builds. A missing or unreadable file is treated as
+   * having no history, since the data is only used as a scheduling hint.
+   */
+  public static ResourceAmountsHistory load(
+      ProjectFilesystem filesystem,
+      ObjectMapper objectMapper) {
+    Map<String, Long> peakMemoryPerRuleType = new TreeMap<>();
+    Optional<String> contents = filesystem.readFileIfItExists(getPath(filesystem));
+    if (contents.isPresent()) {
+      try {
+        peakMemoryPerRuleType.putAll(
+            objectMapper.<Map<String, Long>>readValue(
+                contents.get(),
+                new TypeReference<Map<String, Long>>() {}));
+      } catch (IOException e) {
+        LOG.warn(e, "Ignoring unreadable resource amounts history.");
+      }
+    }
+    return new ResourceAmountsHistory(filesystem, objectMapper, peakMemoryPerRuleType);
+  }
+
+  /**
+   * Learned peaks are measured against the machine's physical memory, not the Buck JVM heap that
+   * the default memory budget is derived from: a rule type whose processes peak at a tenth of the
+   * physical memory is given a tenth of {@code maximumMemoryAmount}.
+   *
+   * @param maximumMemoryAmount the memory budget, in units, the build is scheduled with.
+   * @param totalMemoryBytes the physical memory of the machine the build runs on.
+   * @return {@code info} with amounts learned from history added for every rule type which
+   *     doesn't have amounts configured explicitly.
+   */
+  public ResourceAwareSchedulingInfo applyTo(
+      ResourceAwareSchedulingInfo info,
+      int maximumMemoryAmount,
+      long totalMemoryBytes) {
+    if (!info.isResourceAwareSchedulingEnabled() || totalMemoryBytes <= 0) {
+      return info;
+    }
+    ResourceAmounts defaultAmounts = info.getDefaultResourceAmounts();
+    ImmutableMap.Builder<String, ResourceAmounts> amountsPerRuleType = ImmutableMap.builder();
+    amountsPerRuleType.putAll(info.getAmountsPerRuleType());
+    for (Map.Entry<String, Long> entry : peakMemoryPerRuleType.entrySet()) {
+      if (info.getAmountsPerRuleType().containsKey(entry.getKey())) {
+        continue;
+      }
+      int memory = (int) Math.min(
+          maximumMemoryAmount,
+          Math.ceil((double) entry.getValue() * maximumMemoryAmount / totalMemoryBytes));
+      amountsPerRuleType.put(
+          entry.getKey(),
+          defaultAmounts.withMemory(Math.max(defaultAmounts.getMemory(), memory)));
+    }
+    return info.withAmountsPerRuleType(amountsPerRuleType.build());
+  }
+
+  /**
+   * Starts learning from the processes reported on {@code eventBus}.
+   */
+  public void startRecording(BuckEventBus eventBus) {
+    eventBus.register(this);
+  }
+
+  /**
+   * Stops learning and writes out the history. The tracker only reports a process on its next
+   * periodic probe after the process exits, which for the last processes of a build (usually the
+   * final, memory-hungry links) comes after the build has finished. So the reports still pending
+   * are collected first.
+   */
+  public void stopRecordingAndSave(
+      BuckEventBus eventBus,
+      Optional<ProcessTracker> processTracker) throws IOException, InterruptedException {
+    try {
+      if (processTracker.isPresent()) {
+        processTracker.get().flush();
+      }
+      if (!eventBus.waitEvents(PENDING_REPORTS_TIMEOUT_MS)) {
+        LOG.warn("Timed out waiting for process resource consumption to be reported.");
+      }
+    } finally {
+      eventBus.unregister(this);
+    }
+    save();
+  }
+
+  @Subscribe
+  public void processResourceConsumption(ProcessTracker.ProcessResourceConsumptionEvent event) {
+    Optional<ProcessResourceConsumption> resourceConsumption = event.getResourceConsumption();
+    if (!resourceConsumption.isPresent() || !event.getContext().isPresent()) {
+      return;
+    }
+    String ruleType =
+        event.getContext().get().get(CachingBuildEngine.BUILD_RULE_TYPE_CONTEXT_KEY);
+    if (ruleType == null) {
+      return;
+    }
+    observedPeakMemoryPerRuleType.merge(
+        ruleType,
+        resourceConsumption.get().getMemResident(),
+        Math::max);
+  }
+
+  /**
+   * Writes out the history, replacing the peaks of the rule types that ran in this build with
+   * the ones just observed so that the estimates follow rules that got cheaper, too.
+   */
+  public void save() throws IOException {
+    if (observedPeakMemoryPerRuleType.isEmpty()) {
+      return;
+    }
+    peakMemoryPerRuleType.putAll(observedPeakMemoryPerRuleType);
+    Path path = getPath(filesystem);
+    filesystem.createParentDirs(path);
+    filesystem.writeContentsToPath(objectMapper.writeValueAsString(peakMemoryPerRuleType), path);
+  }
+
+  private static Path getPath(ProjectFilesystem filesystem) {
+    return filesystem.getBuckPaths().getBuckOut().resolve(HISTORY_FILE);
+  }
+}
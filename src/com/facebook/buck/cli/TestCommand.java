@@ -81,6 +81,7 @@ public class TestCommand extends BuildCommand {
 
   public static final String USE_RESULTS_CACHE = "use_results_cache";
   public static final String RERUN_ONLY_FAILING = "rerun_only_failing";
+  public static final String FAST_JVM_STARTUP = "fast_jvm_startup";
 
   private static final Logger LOG = Logger.get(TestCommand.class);
 
@@ -261,6 +262,8 @@ public class TestCommand extends BuildCommand {
         .setShouldExplainTestSelectorList(testSelectorOptions.shouldExplain())
         .setTestResultCacheMode(getResultsCacheMode(params.getBuckConfig()))
         .setShufflingTests(isShufflingTests)
+        .setFastJvmStartupEnabled(
+            params.getBuckConfig().getBooleanValue("test", FAST_JVM_STARTUP, false))
         .setPathToXmlTestOutput(Optional.ofNullable(pathToXmlTestOutput))
         .setPathToJavaAgent(Optional.ofNullable(pathToJavaAgent))
         .setCoverageReportFormat(coverageReportFormat)
@@ -532,7 +535,9 @@ public class TestCommand extends BuildCommand {
           params.getClock(),
           Optional.of(getAdbOptions(params.getBuckConfig())),
           Optional.of(getTargetDeviceOptions()),
-          params.getExecutors())) {
+          params.getExecutors(),
+          params.getOnDiskBuildInfoCache(),
+          params.getBuildInfoStoreManager())) {
 
         // Build all of the test rules.
         int exitCode = build.executeAndPrintFailuresToEventBus(
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.cli;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.log.Logger;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.test.TestCaseSummary;
+import com.facebook.buck.test.TestResults;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Wall-clock durations of test rules from previous runs, persisted in buck-out so that the
+ * slowest tests can be started first. Starting the longest tests first keeps a handful of slow
+ * targets from being scheduled last and dominating the total time of a {@code buck test} run.
+ */
+class TestDurations {
+
+  private static final Logger LOG = Logger.get(TestDurations.class);
+
+  @VisibleForTesting
+  static final String DURATIONS_FILE = "test_durations.json";
+
+  private final ProjectFilesystem filesystem;
+  private final ObjectMapper objectMapper;
+  private final Map<String, Long> durations;
+
+  private TestDurations(
+      ProjectFilesystem filesystem,
+      ObjectMapper objectMapper,
+      Map<String, Long> durations) {
+    this.filesystem = filesystem;
+    this.objectMapper = objectMapper;
+    this.durations = durations;
+  }
+
+  /**
+   * Reads the durations recorded by previous runs. A missing or unreadable file is treated as
+   * having no history, since the data is only used as a scheduling hint.
+   */
+  public static TestDurations load(ProjectFilesystem filesystem, ObjectMapper objectMapper) {
+    Map<String, Long> durations = new TreeMap<>();
+    Optional<String> contents = filesystem.readFileIfItExists(getPath(filesystem));
+    if (contents.isPresent()) {
+      try {
+        durations.putAll(
+            objectMapper.<Map<String, Long>>readValue(
+                contents.get(),
+                new TypeReference<Map<String, Long>>() {}));
+      } catch (IOException e) {
+        LOG.warn(e, "Ignoring unreadable test durations file.");
+      }
+    }
+    return new TestDurations(filesystem, objectMapper, durations);
+  }
+
+  /**
+   * @return the duration in milliseconds of the last run of the given test, if there was one.
+   */
+  public Optional<Long> getDurationMillis(BuildTarget target) {
+    return Optional.ofNullable(durations.get(target.getFullyQualifiedName()));
+  }
+
+  /**
+   * Orders tests so that those that took longest last time come first. Tests with no recorded
+   * duration are treated as the slowest of all, as nothing bounds how long they may take.
+   */
+  public Comparator<BuildTarget> longestFirst() {
+    return Comparator.comparing(
+        (BuildTarget target) -> getDurationMillis(target).orElse(Long.MAX_VALUE))
+        .reversed();
+  }
+
+  /**
+   * Records how long the given test took. Callers should only pass results of runs that were not
+   * narrowed down by test selectors, as those say nothing about how long the whole test takes.
+   * A failing run may have stopped early, so it can only raise the stored duration, never lower it.
+   */
+  public void record(TestResults results) {
+    long totalTime = 0;
+    for (TestCaseSummary testCase : results.getTestCases()) {
+      totalTime += testCase.getTotalTime();
+    }
+    String key = results.getBuildTarget().getFullyQualifiedName();
+    if (results.isSuccess()) {
+      durations.put(key, totalTime);
+    } else {
+      durations.merge(key, totalTime, Math::max);
+    }
+  }
+
+  public void save() throws IOException {
+    Path path = getPath(filesystem);
+    filesystem.createParentDirs(path);
+    filesystem.writeContentsToPath(objectMapper.writeValueAsString(durations), path);
+  }
+
+  private static Path getPath(ProjectFilesystem filesystem) {
+    return filesystem.getBuckPaths().getBuckOut().resolve(DURATIONS_FILE);
+  }
+}
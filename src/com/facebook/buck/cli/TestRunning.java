@@ -85,6 +85,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -316,7 +317,18 @@ public class TestRunning {
       }
     }
 
-    for (TestRun testRun : parallelTestRuns) {
+    // Start the tests that took longest on their last run first, so that slow tests don't end up
+    // being scheduled last and dominating the wall clock time.  The results are still reported in
+    // declaration order.
+    final TestDurations testDurations =
+        TestDurations.load(params.getCell().getFilesystem(), params.getObjectMapper());
+    List<TestRun> parallelTestRunsInSchedulingOrder = Lists.newArrayList(parallelTestRuns);
+    parallelTestRunsInSchedulingOrder.sort(
+        Comparator.comparing(
+            testRun -> testRun.getTest().getBuildTarget(),
+            testDurations.longestFirst()));
+    Map<BuildTarget, ListenableFuture<TestResults>> parallelTestResults = new HashMap<>();
+    for (TestRun testRun : parallelTestRunsInSchedulingOrder) {
       ListenableFuture<TestResults> testResults = runStepsAndYieldResult(
           stepRunner,
           executionContext,
@@ -325,15 +337,19 @@ public class TestRunning {
           testRun.getTest().getBuildTarget(),
           params.getBuckEventBus(),
           service);
-      results.add(
-            transformTestResults(
-                params,
-                testResults,
-                testRun.getTest(),
-                testRun.getTestReportingCallback(),
-                testTargets,
-                lastReportedTestSequenceNumber,
-                totalNumberOfTests));
+      parallelTestResults.put(
+          testRun.getTest().getBuildTarget(),
+          transformTestResults(
+              params,
+              testResults,
+              testRun.getTest(),
+              testRun.getTestReportingCallback(),
+              testTargets,
+              lastReportedTestSequenceNumber,
+              totalNumberOfTests));
+    }
+    for (TestRun testRun : parallelTestRuns) {
+      results.add(parallelTestResults.get(testRun.getTest().getBuildTarget()));
     }
 
 
@@ -413,6 +429,19 @@ public class TestRunning {
 
     params.getBuckEventBus().post(TestRunEvent.finished(testTargets, completedResults));
 
+    // A run filtered by test selectors only covers part of each test, so its timings would
+    // understate how long the full test takes.
+    if (options.getTestSelectorList().isEmpty()) {
+      for (TestResults testResults : completedResults) {
+        testDurations.record(testResults);
+      }
+      try {
+        testDurations.save();
+      } catch (IOException e) {
+        LOG.warn(e, "Failed to record test durations.");
+      }
+    }
+
     // Write out the results as XML, if requested.
     Optional<String> path = options.getPathToXmlTestOutput();
     if (path.isPresent()) {
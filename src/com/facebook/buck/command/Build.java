@@ -35,10 +35,12 @@ import com.facebook.buck.rules.BuildContext;
 import com.facebook.buck.rules.BuildEngine;
 import com.facebook.buck.rules.BuildEngineBuildContext;
 import com.facebook.buck.rules.BuildEvent;
+import com.facebook.buck.rules.BuildInfoStoreManager;
 import com.facebook.buck.rules.BuildResult;
 import com.facebook.buck.rules.BuildRule;
 import com.facebook.buck.rules.BuildRuleResolver;
 import com.facebook.buck.rules.Cell;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.shell.WorkerProcessPool;
 import com.facebook.buck.step.AdbOptions;
 import com.facebook.buck.step.ExecutionContext;
@@ -96,6 +98,8 @@ public class Build implements Closeable {
   private final JavaPackageFinder javaPackageFinder;
   private final Clock clock;
   private final ObjectMapper objectMapper;
+  private final OnDiskBuildInfoCache onDiskBuildInfoCache;
+  private final BuildInfoStoreManager buildInfoStoreManager;
 
   public Build(
       ActionGraph actionGraph,
@@ -121,7 +125,9 @@ public class Build implements Closeable {
       Optional<AdbOptions> adbOptions,
       Optional<TargetDeviceOptions> targetDeviceOptions,
       Optional<ConcurrentMap<String, WorkerProcessPool>> persistentWorkerPools,
-      Map<ExecutorPool, ListeningExecutorService> executors) {
+      Map<ExecutorPool, ListeningExecutorService> executors,
+      OnDiskBuildInfoCache onDiskBuildInfoCache,
+      BuildInfoStoreManager buildInfoStoreManager) {
     this.actionGraph = actionGraph;
     this.ruleResolver = ruleResolver;
     this.rootCell = rootCell;
@@ -151,6 +157,8 @@ public class Build implements Closeable {
     this.javaPackageFinder = javaPackageFinder;
     this.clock = clock;
     this.objectMapper = objectMapper;
+    this.onDiskBuildInfoCache = onDiskBuildInfoCache;
+    this.buildInfoStoreManager = buildInfoStoreManager;
   }
 
   public BuildRuleResolver getRuleResolver() {
@@ -223,6 +231,8 @@ public class Build implements Closeable {
       boolean isKeepGoing)
       throws IOException, ExecutionException, InterruptedException {
     BuildId buildId = executionContext.getBuildId();
+    onDiskBuildInfoCache.startBuild(buildId);
+    buildInfoStoreManager.refresh();
     BuildEngineBuildContext buildContext = BuildEngineBuildContext.builder()
         .setBuildContext(BuildContext.builder()
             .setActionGraph(actionGraph)
@@ -236,6 +246,8 @@ public class Build implements Closeable {
         .setObjectMapper(objectMapper)
         .putAllEnvironment(executionContext.getEnvironment())
         .setKeepGoing(isKeepGoing)
+        .setOnDiskBuildInfoCache(onDiskBuildInfoCache)
+        .setBuildInfoStoreManager(buildInfoStoreManager)
         .build();
 
     // It is important to use this logic to determine the set of rules to build rather than
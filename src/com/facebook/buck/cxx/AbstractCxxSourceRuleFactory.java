@@ -16,16 +16,19 @@
 
 package com.facebook.buck.cxx;
 
+import com.facebook.buck.io.MorePaths;
 import com.facebook.buck.log.Logger;
 import com.facebook.buck.model.BuildTarget;
 import com.facebook.buck.model.BuildTargets;
 import com.facebook.buck.model.Flavor;
 import com.facebook.buck.model.ImmutableFlavor;
+import com.facebook.buck.model.UnflavoredBuildTarget;
 import com.facebook.buck.rules.BuildRule;
 import com.facebook.buck.rules.BuildRuleParams;
 import com.facebook.buck.rules.BuildRuleResolver;
 import com.facebook.buck.rules.BuildTargetSourcePath;
 import com.facebook.buck.rules.DependencyAggregation;
+import com.facebook.buck.rules.PathSourcePath;
 import com.facebook.buck.rules.SourcePath;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.SymlinkTree;
@@ -48,10 +51,13 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import org.immutables.value.Value;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -642,19 +648,6 @@ abstract class AbstractCxxSourceRuleFactory {
       PreprocessorDelegateCacheValue preprocessorDelegateCacheValue,
       CxxSource source) {
 
-    // Detect the rule for which we are building this PCH:
-    SourcePath sourcePath = Preconditions.checkNotNull(this.getPrefixHeader().orElse(null));
-    BuildTarget targetToBuildFor;
-    if (sourcePath instanceof BuildTargetSourcePath) {
-      // e.g. a library "//foo:foo" has "prefix_header='//bar:header'"; then clone "//bar:header",
-      // flavor it (done below), and then that will become one of "//foo:foo"'s dependencies.
-      targetToBuildFor = ((BuildTargetSourcePath) sourcePath).getTarget();
-    } else {
-      // e.g. a library "//baz:baz" has "prefix_header='bazstuff.h'"; then we clone "//baz:baz",
-      // flavor it (done below), and then that will become one of "//baz:baz"'s dependencies.
-      targetToBuildFor = getParams().getBuildTarget();
-    }
-
     // Clang will only use precompiled headers generated with the same flags and language settings.
     // As such, each prefix header may generate multiple pch files, and need unique build targets
     // to be differentiated in the build graph.
@@ -669,10 +662,36 @@ abstract class AbstractCxxSourceRuleFactory {
     final String pchFullID =
         pchBaseID + "-" + preprocessorDelegateCacheValue.getFullHash(compilerFlags);
 
+    // Detect the rule for which we are building this PCH:
+    SourcePath sourcePath = Preconditions.checkNotNull(this.getPrefixHeader().orElse(null));
+    BuildTarget targetToBuildFor;
+    String pchID;
+    if (sourcePath instanceof BuildTargetSourcePath) {
+      // e.g. a library "//foo:foo" has "prefix_header='//bar:header'"; then clone "//bar:header",
+      // flavor it (done below), and then that will become one of "//foo:foo"'s dependencies.
+      targetToBuildFor = ((BuildTargetSourcePath) sourcePath).getTarget();
+      pchID = pchFullID;
+    } else if (sourcePath instanceof PathSourcePath &&
+        isInSameCell((PathSourcePath) sourcePath)) {
+      // e.g. libraries "//foo:foo" and "//bar:bar" both have "prefix_header='//common/pch.h'";
+      // derive the target from the header itself (here "//common:pch.h", flavored below), so that
+      // every library including it with identical flags, include paths and preprocessor deps
+      // shares a single PCH rule instead of each one building an identical PCH of its own.
+      // The "shared" flavor keeps this apart from any real rule that happens to be named "pch.h".
+      targetToBuildFor = getPrecompiledHeaderTargetForPath(
+          ((PathSourcePath) sourcePath).getRelativePath());
+      pchID = "pch-" + langCode + "-shared-" + getSharedPrecompiledHeaderHash(pchFullID);
+    } else {
+      // e.g. a library "//baz:baz" has "prefix_header='bazstuff.h'"; then we clone "//baz:baz",
+      // flavor it (done below), and then that will become one of "//baz:baz"'s dependencies.
+      targetToBuildFor = getParams().getBuildTarget();
+      pchID = pchFullID;
+    }
+
     BuildTarget target = BuildTarget
         .builder(targetToBuildFor)
         .addFlavors(getCxxPlatform().getFlavor())
-        .addFlavors(ImmutableFlavor.of(Flavor.replaceInvalidCharacters(pchFullID)))
+        .addFlavors(ImmutableFlavor.of(Flavor.replaceInvalidCharacters(pchID)))
         .build();
 
     Optional<CxxPrecompiledHeader> existingRule =
@@ -727,6 +746,37 @@ abstract class AbstractCxxSourceRuleFactory {
     return rule;
   }
 
+  private boolean isInSameCell(PathSourcePath sourcePath) {
+    return sourcePath.getFilesystem().getRootPath().equals(
+        getParams().getProjectFilesystem().getRootPath());
+  }
+
+  /**
+   * A shared PCH rule takes its deps and preprocessor from whichever library requires it first, so
+   * its key covers everything those contribute: the preprocessor command (flags and include paths)
+   * and the rules producing the headers it can see.
+   */
+  private String getSharedPrecompiledHeaderHash(String pchFullID) {
+    Hasher hasher = Hashing.sha1().newHasher();
+    hasher.putString(pchFullID, StandardCharsets.UTF_8);
+    for (BuildRule dep : getPreprocessDeps()) {
+      hasher.putString(dep.getBuildTarget().getFullyQualifiedName(), StandardCharsets.UTF_8);
+    }
+    return hasher.hash().toString().substring(0, 10);
+  }
+
+  private BuildTarget getPrecompiledHeaderTargetForPath(Path header) {
+    Path parent = header.getParent();
+    UnflavoredBuildTarget owner = getParams().getBuildTarget().getUnflavoredBuildTarget();
+    return BuildTarget.of(
+        UnflavoredBuildTarget.of(
+            owner.getCellPath(),
+            owner.getCell(),
+            UnflavoredBuildTarget.BUILD_TARGET_PREFIX +
+                (parent == null ? "" : MorePaths.pathWithUnixSeparators(parent)),
+            header.getFileName().toString()));
+  }
+
   public ImmutableSet<CxxInferCapture> requireInferCaptureBuildRules(
       ImmutableMap<String, CxxSource> sources,
       InferBuckConfig inferConfig,
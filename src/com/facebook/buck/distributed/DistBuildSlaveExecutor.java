@@ -28,10 +28,12 @@ import com.facebook.buck.parser.DefaultParserTargetNodeFactory;
 import com.facebook.buck.parser.ParserTargetNodeFactory;
 import com.facebook.buck.rules.ActionGraphAndResolver;
 import com.facebook.buck.rules.BuildEngine;
+import com.facebook.buck.rules.BuildInfoStoreManager;
 import com.facebook.buck.rules.CachingBuildEngine;
 import com.facebook.buck.rules.CachingBuildEngineBuckConfig;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.ConstructorArgMarshaller;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraph;
 import com.facebook.buck.rules.TargetNode;
@@ -123,7 +125,10 @@ public class DistBuildSlaveExecutor {
         Optional.empty(),
         Optional.empty(),
         Optional.empty(),
-        args.getExecutors())) {
+        args.getExecutors(),
+        new OnDiskBuildInfoCache(),
+        new BuildInfoStoreManager(
+            config.getView(CachingBuildEngineBuckConfig.class).getBuildMetadataStorage()))) {
 
       // TODO(ruibm): We need to pass to the distbuild target via de distributed build
       //              thrift structs.
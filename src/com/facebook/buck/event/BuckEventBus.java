@@ -29,8 +29,11 @@ import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Thin wrapper around guava event bus.
@@ -109,6 +112,27 @@ public class BuckEventBus implements Closeable {
     eventBus.register(object);
   }
 
+  public void unregister(Object object) {
+    eventBus.unregister(object);
+  }
+
+  /**
+   * Waits for the events posted so far to be delivered to the subscribers.
+   *
+   * @return whether they were all delivered within the timeout.
+   */
+  public boolean waitEvents(long timeoutMillis) throws InterruptedException {
+    Future<?> marker = executorService.submit(() -> {});
+    try {
+      marker.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    } catch (TimeoutException e) {
+      return false;
+    }
+  }
+
   @VisibleForTesting
   public void postWithoutConfiguring(BuckEvent event) {
     Preconditions.checkState(event.isConfigured());
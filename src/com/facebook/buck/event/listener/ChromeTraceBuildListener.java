@@ -55,6 +55,8 @@ import com.facebook.buck.util.perf.ProcessTracker;
 import com.facebook.buck.util.unit.SizeUnit;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Joiner;
@@ -102,12 +104,13 @@ public class ChromeTraceBuildListener implements BuckEventListener {
 
   private static final Logger LOG = Logger.get(ChromeTraceBuildListener.class);
   private static final int TIMEOUT_SECONDS = 30;
+  private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
 
   private final ProjectFilesystem projectFilesystem;
   private final Clock clock;
   private final int tracesToKeep;
   private final boolean compressTraces;
-  private final ObjectMapper mapper;
+  private final ObjectWriter eventWriter;
   private final ThreadLocal<SimpleDateFormat> dateFormat;
   private final Path tracePath;
   private final OutputStream traceStream;
@@ -115,6 +118,8 @@ public class ChromeTraceBuildListener implements BuckEventListener {
   private final InvocationInfo invocationInfo;
 
   private final ExecutorService outputExecutor;
+  // Only accessed from the outputExecutor thread.
+  private long lastFlushNanos;
 
   public ChromeTraceBuildListener(
       ProjectFilesystem projectFilesystem,
@@ -147,7 +152,12 @@ public class ChromeTraceBuildListener implements BuckEventListener {
     this.invocationInfo = invocationInfo;
     this.projectFilesystem = projectFilesystem;
     this.clock = clock;
-    this.mapper = objectMapper;
+    // Flushing after every event forces a write (and, for compressed traces, a deflater sync
+    // flush) per event, which dominates the cost of tracing large builds. Events are instead
+    // flushed at most once every FLUSH_INTERVAL_NANOS, and at command and build boundaries, so a
+    // trace cut short by a crash still holds nearly everything up to that point.
+    this.eventWriter = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     this.dateFormat = new ThreadLocal<SimpleDateFormat>() {
       @Override
       protected SimpleDateFormat initialValue() {
@@ -166,6 +176,7 @@ public class ChromeTraceBuildListener implements BuckEventListener {
     this.jsonGenerator = objectMapper.getFactory().createGenerator(this.traceStream);
 
     this.jsonGenerator.writeStartArray();
+    this.lastFlushNanos = clock.nanoTime();
     addProcessMetadataEvent();
   }
 
@@ -264,6 +275,7 @@ public class ChromeTraceBuildListener implements BuckEventListener {
             "command_args", Joiner.on(' ').join(started.getArgs())
         ),
         started);
+    flushTrace();
   }
 
   @Subscribe
@@ -275,6 +287,7 @@ public class ChromeTraceBuildListener implements BuckEventListener {
             "command_args", Joiner.on(' ').join(finished.getArgs()),
             "daemon", Boolean.toString(finished.isDaemon())),
         finished);
+    flushTrace();
   }
 
   @Subscribe
@@ -284,6 +297,7 @@ public class ChromeTraceBuildListener implements BuckEventListener {
         ChromeTraceEvent.Phase.BEGIN,
         ImmutableMap.of(),
         started);
+    flushTrace();
   }
 
   @Subscribe
@@ -293,6 +307,7 @@ public class ChromeTraceBuildListener implements BuckEventListener {
         ChromeTraceEvent.Phase.END,
         ImmutableMap.of(),
         finished);
+    flushTrace();
   }
 
   @Subscribe
@@ -752,7 +767,10 @@ public class ChromeTraceBuildListener implements BuckEventListener {
       @Override
       public Void call() throws Exception {
         try {
-          mapper.writeValue(jsonGenerator, chromeTraceEvent);
+          eventWriter.writeValue(jsonGenerator, chromeTraceEvent);
+          if (clock.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+            flushGenerator();
+          }
         } catch (IOException e) {
           // Swallow any failures to write.
         }
@@ -761,6 +779,29 @@ public class ChromeTraceBuildListener implements BuckEventListener {
     });
   }
 
+  /**
+   * Flushes the events written so far, once the ones already submitted have been written.
+   */
+  @SuppressWarnings("PMD.EmptyCatchBlock")
+  private void flushTrace() {
+    outputExecutor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        try {
+          flushGenerator();
+        } catch (IOException e) {
+          // Swallow any failures to write.
+        }
+        return null;
+      }
+    });
+  }
+
+  private void flushGenerator() throws IOException {
+    jsonGenerator.flush();
+    lastFlushNanos = clock.nanoTime();
+  }
+
   private class TracePathAndStream {
     private final Path path;
     private final OutputStream stream;
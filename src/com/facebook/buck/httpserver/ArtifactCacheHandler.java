@@ -19,6 +19,7 @@ package com.facebook.buck.httpserver;
 import com.facebook.buck.artifact_cache.ArtifactCache;
 import com.facebook.buck.artifact_cache.ArtifactInfo;
 import com.facebook.buck.artifact_cache.CacheResult;
+import com.facebook.buck.artifact_cache.DirArtifactCache;
 import com.facebook.buck.artifact_cache.HttpArtifactCacheBinaryProtocol;
 import com.facebook.buck.artifact_cache.StoreResponseReadResult;
 import com.facebook.buck.io.BorrowablePath;
@@ -28,16 +29,25 @@ import com.facebook.buck.log.Logger;
 import com.facebook.buck.rules.RuleKey;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -49,17 +59,65 @@ import javax.servlet.http.HttpServletResponse;
 public class ArtifactCacheHandler extends AbstractHandler {
   private static final Logger LOG = Logger.get(ArtifactCacheHandler.class);
 
+  // How often the cache directory is walked in the background to rebuild the published key
+  // filter. Keys stored in the meantime are fetched again by clients once they pick up a newer
+  // filter.
+  private static final long KEY_FILTER_REFRESH_INTERVAL_SECONDS = 60;
+
   private final ProjectFilesystem projectFilesystem;
-  private Optional<ArtifactCache> artifactCache;
+  private final ScheduledExecutorService keyFilterExecutor;
+  private volatile Optional<ArtifactCache> artifactCache;
+  private volatile Optional<byte[]> keyFilter;
+  private Optional<ScheduledFuture<?>> keyFilterRefresh;
 
   public ArtifactCacheHandler(
       ProjectFilesystem projectFilesystem) {
     this.artifactCache = Optional.empty();
+    this.keyFilter = Optional.empty();
+    this.keyFilterRefresh = Optional.empty();
     this.projectFilesystem = projectFilesystem;
+    this.keyFilterExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat(ArtifactCacheHandler.class.getSimpleName() + "-%d")
+            .setDaemon(true)
+            .build());
   }
 
-  public void setArtifactCache(Optional<ArtifactCache> artifactCache) {
+  public synchronized void setArtifactCache(Optional<ArtifactCache> artifactCache) {
     this.artifactCache = artifactCache;
+    keyFilterRefresh.ifPresent(refresh -> refresh.cancel(false));
+    keyFilterRefresh = Optional.empty();
+    // Only a plain dircache can list what it has stored, so that's the only kind we publish a key
+    // filter for. Walking the cache directory can take a while, so it's never done on a request
+    // thread: until the first walk finishes, the previous filter (if any) keeps being served.
+    if (!artifactCache.isPresent() || !(artifactCache.get() instanceof DirArtifactCache)) {
+      keyFilter = Optional.empty();
+      return;
+    }
+    DirArtifactCache dirCache = (DirArtifactCache) artifactCache.get();
+    keyFilterRefresh = Optional.of(
+        keyFilterExecutor.scheduleWithFixedDelay(
+            () -> refreshKeyFilter(dirCache),
+            0,
+            KEY_FILTER_REFRESH_INTERVAL_SECONDS,
+            TimeUnit.SECONDS));
+  }
+
+  private void refreshKeyFilter(DirArtifactCache cache) {
+    byte[] filter;
+    try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+      HttpArtifactCacheBinaryProtocol.writeRuleKeyFilter(cache.getStoredRuleKeys(), output);
+      filter = output.toByteArray();
+    } catch (IOException e) {
+      LOG.warn(e, "Failed to build the key filter, keeping the previous one.");
+      return;
+    }
+    synchronized (this) {
+      // The cache may have been replaced while its directory was being walked.
+      if (artifactCache.equals(Optional.of(cache))) {
+        keyFilter = Optional.of(filter);
+      }
+    }
   }
 
   @Override
@@ -95,6 +153,9 @@ public class ArtifactCacheHandler extends AbstractHandler {
 
     String path = baseRequest.getUri().getPath();
     String[] pathElements = path.split("/");
+    if (pathElements.length == 3 && pathElements[2].equals("key_filter")) {
+      return handleGetKeyFilter(response);
+    }
     if (pathElements.length != 4 || !pathElements[2].equals("key")) {
       response.getWriter().write("Incorrect url format.");
       return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -125,8 +186,17 @@ public class ArtifactCacheHandler extends AbstractHandler {
                   return projectFilesystem.newFileInputStream(tempFinal);
                 }
               });
-      fetchResponse.write(response.getOutputStream());
+      // The length has to be set before the body is written, otherwise it's ignored once the
+      // response is committed and the body falls back to chunked encoding.
       response.setContentLengthLong(fetchResponse.getContentLength());
+      HttpOutput output = baseRequest.getResponse().getHttpOutput();
+      fetchResponse.writeMetadata(output);
+      // Hand the file channel to Jetty, which reads it straight into its own (direct) buffers
+      // rather than copying the payload through intermediate heap buffers.
+      try (FileChannel payload =
+               FileChannel.open(projectFilesystem.resolve(temp), StandardOpenOption.READ)) {
+        output.sendContent(payload);
+      }
       return HttpServletResponse.SC_OK;
     } finally {
       if (temp != null) {
@@ -135,6 +205,17 @@ public class ArtifactCacheHandler extends AbstractHandler {
     }
   }
 
+  private int handleGetKeyFilter(HttpServletResponse response) throws IOException {
+    Optional<byte[]> currentKeyFilter = keyFilter;
+    if (!currentKeyFilter.isPresent()) {
+      return HttpServletResponse.SC_NOT_FOUND;
+    }
+    byte[] filter = currentKeyFilter.get();
+    response.setContentLength(filter.length);
+    response.getOutputStream().write(filter);
+    return HttpServletResponse.SC_OK;
+  }
+
   private int handlePut(Request baseRequest, HttpServletResponse response) throws IOException {
     if (!artifactCache.isPresent()) {
       response.getWriter().write("Serving local cache is disabled for this instance.");
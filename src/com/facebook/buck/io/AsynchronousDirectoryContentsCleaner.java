@@ -16,20 +16,26 @@
 
 package com.facebook.buck.io;
 
+import static com.facebook.buck.util.concurrent.MostExecutors.newMultiThreadExecutor;
 import static com.facebook.buck.util.concurrent.MostExecutors.newSingleThreadExecutor;
 
 import com.facebook.buck.log.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.io.IOException;
 
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
-import java.util.EnumSet;
 
 /**
  * Asynchronously cleans the contents of a directory.
@@ -37,8 +43,13 @@ import java.util.EnumSet;
 public class AsynchronousDirectoryContentsCleaner {
   private static final Logger LOG = Logger.get(AsynchronousDirectoryContentsCleaner.class);
 
+  // Deleting is mostly waiting on the filesystem, so a few threads speed it up, but more would
+  // just compete with builds for I/O.
+  private static final int DELETION_THREADS = 4;
+
   private final Path pathToClean;
   private final Executor executor;
+  private final ParallelFileDeleter deleter;
 
   /**
    * A ThreadFactory which ensures the spawned threads do not keep the JVM alive at
@@ -66,13 +77,26 @@ public class AsynchronousDirectoryContentsCleaner {
         pathToClean,
         newSingleThreadExecutor(
             new DaemonThreadFactory(
-                "AsynchronousDirectoryContentsCleaner-" + pathToClean.toString())));
+                "AsynchronousDirectoryContentsCleaner-" + pathToClean.toString())),
+        MoreExecutors.listeningDecorator(
+            newMultiThreadExecutor(
+                new DaemonThreadFactory(
+                    "AsynchronousDirectoryContentsCleaner-deleter-" + pathToClean.toString()),
+                DELETION_THREADS)));
   }
 
   @VisibleForTesting
   AsynchronousDirectoryContentsCleaner(Path pathToClean, Executor executor) {
+    this(pathToClean, executor, MoreExecutors.newDirectExecutorService());
+  }
+
+  private AsynchronousDirectoryContentsCleaner(
+      Path pathToClean,
+      Executor executor,
+      ListeningExecutorService deletionExecutor) {
     this.pathToClean = pathToClean;
     this.executor = executor;
+    this.deleter = new ParallelFileDeleter(deletionExecutor);
   }
 
   /**
@@ -86,16 +110,23 @@ public class AsynchronousDirectoryContentsCleaner {
         () -> {
           LOG.debug("Starting to clean %s", pathToClean);
           try {
-            MoreFiles.deleteRecursivelyWithOptions(
-                pathToClean,
-                EnumSet.of(
-                    MoreFiles.DeleteRecursivelyOptions.IGNORE_NO_SUCH_FILE_EXCEPTION,
-                    MoreFiles.DeleteRecursivelyOptions.DELETE_CONTENTS_ONLY));
+            long bytesDeleted = deleter.deleteRecursively(listContents(pathToClean));
+            LOG.debug("Deleted %d bytes from %s", bytesDeleted, pathToClean);
           } catch (IOException e) {
             LOG.warn(e, "I/O error cleaning trash");
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
           } finally {
             LOG.debug("Done cleaning %s", pathToClean);
           }
         });
   }
+
+  private static ImmutableList<Path> listContents(Path directory) throws IOException {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      return ImmutableList.copyOf(entries);
+    } catch (NoSuchFileException e) {
+      return ImmutableList.of();
+    }
+  }
 }
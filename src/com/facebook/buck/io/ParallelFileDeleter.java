@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.io;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes directory trees using the threads of an executor, one directory per task, so that the
+ * number of deletions in flight is bounded by the size of the executor.  Symlinks are deleted
+ * rather than followed.
+ */
+public class ParallelFileDeleter {
+
+  private final ListeningExecutorService executor;
+
+  public ParallelFileDeleter(ListeningExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Deletes each of {@code paths}, and everything under those which are directories.  Paths which
+   * don't exist are ignored.
+   *
+   * @return the total size of the files deleted.
+   */
+  public long deleteRecursively(Iterable<Path> paths) throws IOException, InterruptedException {
+    Deletion deletion = new Deletion();
+    for (Path path : paths) {
+      deletion.deleteOrSchedule(path);
+    }
+    deletion.await();
+    return deletion.bytesDeleted.get();
+  }
+
+  private class Deletion {
+    private final AtomicLong bytesDeleted = new AtomicLong();
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    // Emptied directories, which are removed once everything under them is gone.
+    private final Queue<Path> directories = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Deletes {@code path} right away if it's a file, or schedules a task to empty it if it's a
+     * directory.
+     */
+    private void deleteOrSchedule(Path path) throws IOException {
+      BasicFileAttributes attributes;
+      try {
+        attributes =
+            Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      } catch (NoSuchFileException e) {
+        return;
+      }
+      if (attributes.isDirectory()) {
+        directories.add(path);
+        pending.add(executor.submit(() -> {
+          emptyDirectory(path);
+          return null;
+        }));
+      } else {
+        try {
+          Files.delete(path);
+          bytesDeleted.addAndGet(attributes.size());
+        } catch (NoSuchFileException e) {
+          // Someone else got there first.
+        }
+      }
+    }
+
+    private void emptyDirectory(Path directory) throws IOException {
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          deleteOrSchedule(entry);
+        }
+      } catch (NoSuchFileException e) {
+        // Someone else got there first.
+      }
+    }
+
+    private void await() throws IOException, InterruptedException {
+      // Tasks only ever schedule more tasks before they complete, so once the queue is drained
+      // every directory has been emptied.
+      Future<?> future;
+      while ((future = pending.poll()) != null) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+          throw Throwables.propagate(e.getCause());
+        }
+      }
+
+      List<Path> deepestFirst = directories.stream()
+          .sorted(Comparator.comparing(Path::getNameCount).reversed())
+          .collect(Collectors.toList());
+      for (Path directory : deepestFirst) {
+        Files.deleteIfExists(directory);
+      }
+    }
+  }
+}
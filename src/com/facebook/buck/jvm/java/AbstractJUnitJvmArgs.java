@@ -88,6 +88,18 @@ abstract class AbstractJUnitJvmArgs {
     return false;
   }
 
+  /**
+   * @return If true, tune the JVM for fast startup rather than peak throughput: compile with the
+   * client JIT only, share class data where possible and skip perf data collection.  This suits
+   * the many small test targets whose JVM startup and warmup outweigh the tests themselves.
+   *
+   * Defaults to false.
+   */
+  @Value.Default
+  boolean isFastStartupEnabled() {
+    return false;
+  }
+
   /**
    * @return If true, include explanations for tests that were filtered out.
    */
@@ -212,6 +224,13 @@ abstract class AbstractJUnitJvmArgs {
       args.add("-agentlib:jdwp=transport=dt_socket,server=y,suspend=y,address=5005");
     }
 
+    // Never set together with user-defined VM arguments, see JavaTest.
+    if (isFastStartupEnabled()) {
+      args.add("-XX:+TieredCompilation", "-XX:TieredStopAtLevel=1");
+      args.add("-Xshare:auto");
+      args.add("-XX:-UsePerfData");
+    }
+
     // User-defined VM arguments, such as -D or -X.
     if (getExtraJvmArgs().isPresent()) {
       args.addAll(getExtraJvmArgs().get());
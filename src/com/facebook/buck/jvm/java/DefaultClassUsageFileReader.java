@@ -24,17 +24,16 @@ import com.facebook.buck.rules.BuildTargetSourcePath;
 import com.facebook.buck.rules.SourcePath;
 import com.facebook.buck.util.HumanReadableException;
 import com.facebook.buck.util.ObjectMappers;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -74,14 +73,11 @@ class DefaultClassUsageFileReader {
     return jarAbsolutePathToAbiJarSourcePathBuilder.build();
   }
 
-  private static ImmutableMap<String, ImmutableList<String>> loadClassUsageMap(
-      Path mapFilePath) throws IOException {
-    return objectMapper.readValue(
-        mapFilePath.toFile(),
-        new TypeReference<ImmutableMap<String, ImmutableList<String>>>() {
-        });
-  }
-
+  /**
+   * Streams the class usage file, which maps each jar to the list of classes used from it. Jars
+   * that are not the output of one of the rule's deps are skipped without materializing their
+   * class lists, which are typically the bulk of the file (JDK and SDK classes).
+   */
   public static ImmutableList<SourcePath> loadFromFile(
       ProjectFilesystem projectFilesystem,
       Path classUsageFilePath,
@@ -89,28 +85,43 @@ class DefaultClassUsageFileReader {
     final ImmutableMap<Path, SourcePath> jarAbsolutePathToAbiJarSourcePath =
         buildJarToAbiJarMap(deps);
     final ImmutableList.Builder<SourcePath> builder = ImmutableList.builder();
-    try {
-      final ImmutableSet<Map.Entry<String, ImmutableList<String>>> classUsageEntries =
-          loadClassUsageMap(classUsageFilePath).entrySet();
-      for (Map.Entry<String, ImmutableList<String>> jarUsedClassesEntry : classUsageEntries) {
-        Path jarAbsolutePath = projectFilesystem.resolve(Paths.get(jarUsedClassesEntry.getKey()));
+    try (JsonParser parser = objectMapper.getFactory().createParser(classUsageFilePath.toFile())) {
+      expectToken(parser, JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        Path jarAbsolutePath = projectFilesystem.resolve(Paths.get(parser.getCurrentName()));
+        expectToken(parser, JsonToken.START_ARRAY);
         SourcePath abiJarSourcePath = jarAbsolutePathToAbiJarSourcePath.get(jarAbsolutePath);
         if (abiJarSourcePath == null) {
           // This indicates a dependency that wasn't among the deps of the rule; i.e.,
           // it came from the build environment (JDK, Android SDK, etc.)
+          parser.skipChildren();
           continue;
         }
 
-        ImmutableList<String> classAbsolutePaths = jarUsedClassesEntry.getValue();
-        for (String classAbsolutePath : classAbsolutePaths) {
+        while (parser.nextToken() == JsonToken.VALUE_STRING) {
           builder.add(
-              new ArchiveMemberSourcePath(abiJarSourcePath, Paths.get(classAbsolutePath)));
+              new ArchiveMemberSourcePath(abiJarSourcePath, Paths.get(parser.getText())));
+        }
+        if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+          throw new IOException(
+              String.format("Unexpected %s in class list", parser.getCurrentToken()));
         }
       }
+      if (parser.getCurrentToken() != JsonToken.END_OBJECT) {
+        throw new IOException(
+            String.format("Unexpected %s in class usage map", parser.getCurrentToken()));
+      }
     } catch (IOException e) {
       throw new HumanReadableException(e, "Failed to load class usage files from %s:\n%s",
           classUsageFilePath, e.getLocalizedMessage());
     }
     return builder.build();
   }
+
+  private static void expectToken(JsonParser parser, JsonToken expected) throws IOException {
+    JsonToken actual = parser.nextToken();
+    if (actual != expected) {
+      throw new IOException(String.format("Expected %s but found %s", expected, actual));
+    }
+  }
 }
@@ -464,6 +464,13 @@ public class JavaFileParser {
   }
 
   public Optional<String> getPackageNameFromSource(String code) {
+    // Most files start with a plain package declaration, which can be read without parsing the
+    // whole file.
+    Optional<Optional<String>> scannedPackageName = scanPackageName(code);
+    if (scannedPackageName.isPresent()) {
+      return scannedPackageName.get();
+    }
+
     final CompilationUnit compilationUnit = makeCompilationUnitFromSource(code);
 
     // A Java file might not have a package. Hopefully all of ours do though...
@@ -474,6 +481,84 @@ public class JavaFileParser {
     return Optional.empty();
   }
 
+  /**
+   * Reads the package declaration from the start of {@code code} without building an AST.
+   *
+   * @return {@link Optional#empty()} if the file starts with something this scanner does not
+   *     handle (such as an annotated package or a unicode escape) and needs a full parse.
+   *     Otherwise, what {@link #getPackageNameFromSource(String)} returns: the package, or an
+   *     empty name if the file definitely has no package declaration.
+   */
+  private static Optional<Optional<String>> scanPackageName(String code) {
+    int position = skipWhitespaceAndComments(code, 0);
+    if (position == code.length()) {
+      return Optional.of(Optional.empty());
+    }
+    if (!Character.isJavaIdentifierStart(code.charAt(position))) {
+      return Optional.empty();
+    }
+    int end = scanIdentifier(code, position);
+    if (!code.substring(position, end).equals("package")) {
+      // Imports and type declarations can only follow the package declaration.
+      return Optional.of(Optional.empty());
+    }
+
+    List<String> nameParts = Lists.newArrayList();
+    position = end;
+    while (true) {
+      position = skipWhitespaceAndComments(code, position);
+      if (position == code.length() || !Character.isJavaIdentifierStart(code.charAt(position))) {
+        return Optional.empty();
+      }
+      end = scanIdentifier(code, position);
+      nameParts.add(code.substring(position, end));
+      position = skipWhitespaceAndComments(code, end);
+      if (position == code.length()) {
+        return Optional.empty();
+      }
+      char c = code.charAt(position);
+      if (c == ';') {
+        return Optional.of(Optional.of(Joiner.on('.').join(nameParts)));
+      } else if (c != '.') {
+        return Optional.empty();
+      }
+      position++;
+    }
+  }
+
+  private static int scanIdentifier(String code, int position) {
+    while (position < code.length() && Character.isJavaIdentifierPart(code.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * @return the index of the first character at or after {@code position} that is not whitespace
+   *     or part of a comment, or the length of {@code code} if there is none.
+   */
+  private static int skipWhitespaceAndComments(String code, int position) {
+    while (position < code.length()) {
+      char c = code.charAt(position);
+      if (Character.isWhitespace(c)) {
+        position++;
+      } else if (code.startsWith("//", position)) {
+        while (position < code.length() &&
+            code.charAt(position) != '\n' &&
+            code.charAt(position) != '\r') {
+          position++;
+        }
+      } else if (code.startsWith("/*", position)) {
+        int commentEnd = code.indexOf("*/", position + 2);
+        // An unterminated comment leaves nothing to scan.
+        position = commentEnd == -1 ? code.length() : commentEnd + 2;
+      } else {
+        break;
+      }
+    }
+    return position;
+  }
+
   private static enum DependencyType {
     REQUIRED,
     EXPORTED,
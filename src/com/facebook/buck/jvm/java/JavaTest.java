@@ -236,6 +236,7 @@ public class JavaTest
         .setStdErrLogLevel(stdErrLogLevel)
         .setRobolectricLogPath(robolectricLogPath)
         .setExtraJvmArgs(properVmArgs)
+        .setFastStartupEnabled(isFastJvmStartupEnabled(options))
         .addAllTestClasses(reorderedTestClasses)
         .setShouldExplainTestSelectorList(options.shouldExplainTestSelectorList())
         .setTestSelectorList(testSelectorList)
@@ -323,6 +324,16 @@ public class JavaTest
     return reorderedClassNames;
   }
 
+  /**
+   * Tests that tune their own JVM or load native code keep the default JVM configuration.
+   */
+  @VisibleForTesting
+  boolean isFastJvmStartupEnabled(TestRunningOptions options) {
+    return options.isFastJvmStartupEnabled() &&
+        vmArgs.isEmpty() &&
+        nativeLibsEnvironment.isEmpty();
+  }
+
   @VisibleForTesting
   ImmutableList<String> amendVmArgs(
       ImmutableList<String> existingVmArgs,
@@ -21,6 +21,10 @@ import com.facebook.buck.io.ProjectFilesystem;
 import com.facebook.buck.util.MoreCollectors;
 import com.facebook.buck.util.sha1.Sha1HashCode;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Resources;
@@ -37,6 +41,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Nullable;
 
@@ -67,6 +72,20 @@ public class IjProjectWriter {
     }
   }
 
+  /**
+   * The templates are read from the classpath once per process rather than once per file
+   * written.
+   */
+  private static final LoadingCache<StringTemplateFile, String> TEMPLATE_CONTENTS =
+      CacheBuilder.newBuilder().build(
+          new CacheLoader<StringTemplateFile, String>() {
+            @Override
+            public String load(StringTemplateFile file) throws IOException {
+              URL templateUrl = Resources.getResource(IjProjectWriter.class, file.getFileName());
+              return Resources.toString(templateUrl, StandardCharsets.UTF_8);
+            }
+          });
+
   private IjProjectTemplateDataPreparer projectDataPreparer;
   private IjProjectConfig projectConfig;
   private ProjectFilesystem projectFilesystem;
@@ -312,18 +331,29 @@ public class IjProjectWriter {
   }
 
   private static ST getST(StringTemplateFile file) throws IOException {
-    URL templateUrl = Resources.getResource(IjProjectWriter.class, file.getFileName());
-    String template = Resources.toString(templateUrl, StandardCharsets.UTF_8);
+    String template;
+    try {
+      template = TEMPLATE_CONTENTS.get(file);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw new RuntimeException(e);
+    }
     return new ST(template, DELIMITER, DELIMITER);
   }
 
+  /**
+   * Renders {@code contents} and writes them to {@code path}, unless the file already has exactly
+   * those contents. Leaving unchanged files alone keeps their timestamps, so IntelliJ does not
+   * reload every module after each run.
+   */
   @VisibleForTesting
   protected void writeToFile(ST contents, Path path) throws IOException {
     StringWriter stringWriter = new StringWriter();
     AutoIndentWriter noIndentWriter = new AutoIndentWriter(stringWriter);
     contents.write(noIndentWriter);
-    byte[] renderedContentsBytes = noIndentWriter.toString().getBytes(StandardCharsets.UTF_8);
-    if (projectFilesystem.exists(path)) {
+    byte[] renderedContentsBytes = stringWriter.toString().getBytes(StandardCharsets.UTF_8);
+    if (projectFilesystem.exists(path) &&
+        projectFilesystem.getFileSize(path) == renderedContentsBytes.length) {
       Sha1HashCode fileSha1 = projectFilesystem.computeSha1(path);
       Sha1HashCode contentsSha1 = Sha1HashCode.fromHashCode(Hashing.sha1()
           .hashBytes(renderedContentsBytes));
@@ -340,7 +370,7 @@ public class IjProjectWriter {
     try {
       danglingTempFile = true;
       try (OutputStream outputStream = projectFilesystem.newFileOutputStream(tempFile)) {
-        outputStream.write(contents.render().getBytes());
+        outputStream.write(renderedContentsBytes);
       }
       projectFilesystem.createParentDirs(path);
       projectFilesystem.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
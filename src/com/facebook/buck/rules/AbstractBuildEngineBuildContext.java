@@ -27,6 +27,8 @@ import com.google.common.collect.ImmutableMap;
 
 import org.immutables.value.Value;
 
+import java.util.Optional;
+
 /**
  * Per-build context used by {@link BuildEngine}.
  */
@@ -49,6 +51,18 @@ abstract class AbstractBuildEngineBuildContext {
     return false;
   }
 
+  /**
+   * Cache of rule metadata shared between builds run by a long-lived process.  Whoever sets this
+   * is responsible for calling {@link OnDiskBuildInfoCache#startBuild} before each build.
+   */
+  public abstract Optional<OnDiskBuildInfoCache> getOnDiskBuildInfoCache();
+
+  /**
+   * Where build metadata is stored.  Whoever sets this is responsible for calling
+   * {@link BuildInfoStoreManager#refresh()} before each build.
+   */
+  public abstract BuildInfoStoreManager getBuildInfoStoreManager();
+
   /**
    * Creates an {@link OnDiskBuildInfo}.
    * <p>
@@ -56,7 +70,12 @@ abstract class AbstractBuildEngineBuildContext {
    * in general.
    */
   OnDiskBuildInfo createOnDiskBuildInfoFor(BuildTarget target, ProjectFilesystem filesystem) {
-    return new DefaultOnDiskBuildInfo(target, filesystem, getObjectMapper());
+    return new DefaultOnDiskBuildInfo(
+        target,
+        filesystem,
+        getBuildInfoStoreManager().get(filesystem),
+        getOnDiskBuildInfoCache(),
+        getObjectMapper());
   }
 
   /**
@@ -72,7 +91,9 @@ abstract class AbstractBuildEngineBuildContext {
         getClock(),
         getBuildId(),
         getObjectMapper(),
-        ImmutableMap.copyOf(getEnvironment()));
+        ImmutableMap.copyOf(getEnvironment()),
+        getBuildInfoStoreManager().get(filesystem),
+        getOnDiskBuildInfoCache());
   }
 
   public final BuckEventBus getEventBus() {
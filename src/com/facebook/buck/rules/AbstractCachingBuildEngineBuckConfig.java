@@ -68,6 +68,17 @@ abstract class AbstractCachingBuildEngineBuckConfig implements ConfigView<BuckCo
         .orElse(Long.MAX_VALUE);
   }
 
+  /**
+   * @return where to store the build metadata of built rules.
+   */
+  public CachingBuildEngine.MetadataStorage getBuildMetadataStorage() {
+    return getDelegate().getEnum(
+        "build",
+        "metadata_storage",
+        CachingBuildEngine.MetadataStorage.class)
+        .orElse(CachingBuildEngine.MetadataStorage.FILESYSTEM);
+  }
+
   public ResourceAwareSchedulingInfo getResourceAwareSchedulingInfo() {
     return ResourceAwareSchedulingInfo.of(
         getDelegate().isResourceAwareSchedulingEnabled(),
@@ -88,6 +88,8 @@ public class BuildInfoRecorder {
   private final Clock clock;
   private final BuildId buildId;
   private final ObjectMapper objectMapper;
+  private final BuildInfoStore buildInfoStore;
+  private final Optional<OnDiskBuildInfoCache> onDiskBuildInfoCache;
   private final ImmutableMap<String, String> artifactExtraData;
   private final Map<String, String> metadataToWrite;
   private final Map<String, String> buildMetadata;
@@ -103,7 +105,9 @@ public class BuildInfoRecorder {
       Clock clock,
       BuildId buildId,
       ObjectMapper objectMapper,
-      ImmutableMap<String, String> environment) {
+      ImmutableMap<String, String> environment,
+      BuildInfoStore buildInfoStore,
+      Optional<OnDiskBuildInfoCache> onDiskBuildInfoCache) {
     this.buildTarget = buildTarget;
     this.pathToMetadataDirectory =
         BuildInfo.getPathToMetadataDirectory(buildTarget, projectFilesystem);
@@ -111,6 +115,8 @@ public class BuildInfoRecorder {
     this.clock = clock;
     this.buildId = buildId;
     this.objectMapper = objectMapper;
+    this.buildInfoStore = buildInfoStore;
+    this.onDiskBuildInfoCache = onDiskBuildInfoCache;
 
     this.artifactExtraData =
         ImmutableMap.<String, String>builder()
@@ -166,17 +172,34 @@ public class BuildInfoRecorder {
    * {@link BuildInfo#getPathToMetadataDirectory(BuildTarget, ProjectFilesystem)}.
    */
   public void writeMetadataToDisk(boolean clearExistingMetadata) throws IOException {
+    // Drop any cached values up front, so that a failed write leaves nothing stale behind.
+    if (onDiskBuildInfoCache.isPresent()) {
+      onDiskBuildInfoCache.get().invalidate(projectFilesystem, pathToMetadataDirectory);
+    }
     if (clearExistingMetadata) {
       projectFilesystem.deleteRecursivelyIfExists(pathToMetadataDirectory);
+      buildInfoStore.deleteMetadata(buildTarget);
     }
     projectFilesystem.mkdirs(pathToMetadataDirectory);
 
-    for (Map.Entry<String, String> entry :
-         Iterables.concat(metadataToWrite.entrySet(), getBuildMetadata().entrySet())) {
+    for (Map.Entry<String, String> entry : metadataToWrite.entrySet()) {
       projectFilesystem.writeContentsToPath(
           entry.getValue(),
           pathToMetadataDirectory.resolve(entry.getKey()));
     }
+    ImmutableMap<String, String> buildMetadata = getBuildMetadata();
+    buildInfoStore.updateMetadata(buildTarget, buildMetadata);
+
+    if (onDiskBuildInfoCache.isPresent()) {
+      for (Map.Entry<String, String> entry :
+           Iterables.concat(metadataToWrite.entrySet(), buildMetadata.entrySet())) {
+        onDiskBuildInfoCache.get().putValue(
+            projectFilesystem,
+            pathToMetadataDirectory,
+            entry.getKey(),
+            entry.getValue());
+      }
+    }
   }
 
   /**
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.model.BuildTarget;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage for the metadata of the rules of a single cell.
+ * <p>
+ * Only build metadata (see {@link BuildInfoRecorder#addBuildMetadata(String, String)}) is written
+ * through a store.  Metadata recorded via {@link BuildInfoRecorder#addMetadata(String, String)} is
+ * packaged into cached artifacts, so it is always written as files in the rule's metadata
+ * directory, and stores must fall back to those files for keys they don't hold themselves.
+ */
+public interface BuildInfoStore extends Closeable {
+
+  Optional<String> readMetadata(BuildTarget buildTarget, String key);
+
+  /**
+   * Adds or replaces the given build metadata entries for a rule, as a single atomic update.
+   */
+  void updateMetadata(BuildTarget buildTarget, Map<String, String> metadata) throws IOException;
+
+  /**
+   * Removes all build metadata for a rule.
+   */
+  void deleteMetadata(BuildTarget buildTarget) throws IOException;
+
+  /**
+   * Picks up any changes made by other buck processes.  Called at the start of each build.
+   */
+  void refresh() throws IOException;
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.util.HumanReadableException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out the {@link BuildInfoStore} of each cell.  Long-lived processes keep a single manager,
+ * so that stores which index their contents in memory only have to load them once.
+ * <p>
+ * All cells use the same kind of storage, which is configured in the root cell.
+ */
+public class BuildInfoStoreManager implements Closeable {
+
+  private final CachingBuildEngine.MetadataStorage metadataStorage;
+  private final ConcurrentMap<Path, BuildInfoStore> stores = new ConcurrentHashMap<>();
+
+  public BuildInfoStoreManager(CachingBuildEngine.MetadataStorage metadataStorage) {
+    this.metadataStorage = metadataStorage;
+  }
+
+  public BuildInfoStore get(ProjectFilesystem filesystem) {
+    return stores.computeIfAbsent(filesystem.getRootPath(), root -> create(filesystem));
+  }
+
+  /**
+   * Picks up changes made by other buck processes to any of the stores handed out so far.
+   */
+  public void refresh() throws IOException {
+    for (BuildInfoStore store : stores.values()) {
+      store.refresh();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (BuildInfoStore store : stores.values()) {
+      store.close();
+    }
+    stores.clear();
+  }
+
+  private BuildInfoStore create(ProjectFilesystem filesystem) {
+    try {
+      switch (metadataStorage) {
+        case FILESYSTEM:
+          return new FilesystemBuildInfoStore(filesystem);
+        case LOG:
+          return new LogStructuredBuildInfoStore(filesystem);
+      }
+    } catch (IOException e) {
+      throw new HumanReadableException(
+          e,
+          "Failed to open build metadata storage in %s: %s",
+          filesystem.getRootPath(),
+          e.getMessage());
+    }
+    throw new IllegalStateException("Unknown metadata storage " + metadataStorage);
+  }
+}
@@ -125,8 +125,10 @@ public class CachingBuildEngine implements BuildEngine {
       0, 0, 1, 0);
   public static final ResourceAmounts SCHEDULING_MORE_WORK_RESOURCE_AMOUNTS = ResourceAmounts.ZERO;
 
-  private static final String BUILD_RULE_TYPE_CONTEXT_KEY = "build_rule_type";
+  public static final String BUILD_RULE_TYPE_CONTEXT_KEY = "build_rule_type";
   private static final String STEP_TYPE_CONTEXT_KEY = "step_type";
+  private static final String BUILD_TARGET_CONTEXT_KEY = "build_target";
+  private static final String STEP_NAME_CONTEXT_KEY = "step_name";
   private static enum StepType {
     BUILD_STEP,
     POST_BUILD_STEP,
@@ -162,6 +164,13 @@ public class CachingBuildEngine implements BuildEngine {
   private final LoadingCache<ProjectFilesystem, RuleKeyFactories> ruleKeyFactories;
   private final ResourceAwareSchedulingInfo resourceAwareSchedulingInfo;
 
+  /**
+   * Parsed dep file entries, keyed by their serialized form.  Widely included headers show up in
+   * the dep files of thousands of rules, so this lets each distinct entry be deserialized once per
+   * build rather than once per rule that uses it.
+   */
+  private final LoadingCache<String, DependencyFileEntry> parsedDepFileEntries;
+
   public CachingBuildEngine(
       CachingBuildEngineDelegate cachingBuildEngineDelegate,
       WeightedListeningExecutorService service,
@@ -202,6 +211,7 @@ public class CachingBuildEngine implements BuildEngine {
           }
         });
     this.resourceAwareSchedulingInfo = resourceAwareSchedulingInfo;
+    this.parsedDepFileEntries = createParsedDepFileEntriesCache(this.objectMapper);
   }
 
   /**
@@ -242,6 +252,14 @@ public class CachingBuildEngine implements BuildEngine {
           }
         });
     this.resourceAwareSchedulingInfo = resourceAwareSchedulingInfo;
+    this.parsedDepFileEntries = createParsedDepFileEntriesCache(this.objectMapper);
+  }
+
+  private static LoadingCache<String, DependencyFileEntry> createParsedDepFileEntriesCache(
+      final ObjectMapper objectMapper) {
+    return CacheBuilder.newBuilder()
+        .build(CacheLoader.from(
+            MoreFunctions.fromJsonFunction(objectMapper, DependencyFileEntry.class)::apply));
   }
 
   /**
@@ -611,6 +629,16 @@ public class CachingBuildEngine implements BuildEngine {
     final BuildableContext buildableContext = new DefaultBuildableContext(buildInfoRecorder);
     final AtomicReference<Long> outputSize = Atomics.newReference();
 
+    // If we're performing a deep build, all dependencies will *always* get materialized locally,
+    // so dispatch them before checking the cache for this rule.  Otherwise each level of the graph
+    // would wait for the cache round trip of the level above it, and a fully cached build would
+    // take time proportional to the depth of the graph rather than to the bandwidth available.
+    Optional<ListenableFuture<List<BuildResult>>> deepDepResults = Optional.empty();
+    if (buildMode == BuildMode.DEEP || buildMode == BuildMode.POPULATE_FROM_REMOTE_CACHE) {
+      deepDepResults =
+          Optional.of(getDepResults(rule, buildContext, executionContext, asyncCallbacks));
+    }
+
     ListenableFuture<BuildResult> buildResult =
           processBuildRule(
               rule,
@@ -621,13 +649,9 @@ public class CachingBuildEngine implements BuildEngine {
               buildableContext,
               asyncCallbacks);
 
-    // If we're performing a deep build, guarantee that all dependencies will *always* get
-    // materialized locally by chaining up to our result future.
-    if (buildMode == BuildMode.DEEP || buildMode == BuildMode.POPULATE_FROM_REMOTE_CACHE) {
-      buildResult =
-          MoreFutures.chainExceptions(
-              getDepResults(rule, buildContext, executionContext, asyncCallbacks),
-              buildResult);
+    // Guarantee the deep build's dependencies are done by chaining up to our result future.
+    if (deepDepResults.isPresent()) {
+      buildResult = MoreFutures.chainExceptions(deepDepResults.get(), buildResult);
     }
 
     // Setup a callback to handle either the cached or built locally cases.
@@ -1327,7 +1351,14 @@ public class CachingBuildEngine implements BuildEngine {
           BuildInfo.getPathToMetadataDirectory(
               rule.getBuildTarget(),
               rule.getProjectFilesystem());
+      BuildInfoStore buildInfoStore =
+          buildContext.getBuildInfoStoreManager().get(rule.getProjectFilesystem());
       rule.getProjectFilesystem().deleteRecursivelyIfExists(metadataDir);
+      buildInfoStore.deleteMetadata(rule.getBuildTarget());
+      if (buildContext.getOnDiskBuildInfoCache().isPresent()) {
+        buildContext.getOnDiskBuildInfoCache().get()
+            .invalidate(rule.getProjectFilesystem(), metadataDir);
+      }
 
       Unzip.extractZipFile(
           zipPath.toAbsolutePath(),
@@ -1339,11 +1370,7 @@ public class CachingBuildEngine implements BuildEngine {
       Files.delete(zipPath);
 
       // Also write out the build metadata.
-      for (Map.Entry<String, String> ent : cacheResult.getMetadata().entrySet()) {
-        Path dest = metadataDir.resolve(ent.getKey());
-        filesystem.createParentDirs(dest);
-        filesystem.writeContentsToPath(ent.getValue(), dest);
-      }
+      buildInfoStore.updateMetadata(rule.getBuildTarget(), cacheResult.getMetadata());
 
     } catch (IOException e) {
       // In the wild, we have seen some inexplicable failures during this step. For now, we try to
@@ -1397,14 +1424,7 @@ public class CachingBuildEngine implements BuildEngine {
     Optional<BuildTarget> optionalTarget = Optional.of(rule.getBuildTarget());
     for (Step step : steps) {
       stepRunner.runStepForBuildTarget(
-          executionContext.withProcessExecutor(
-              new ContextualProcessExecutor(
-                  executionContext.getProcessExecutor(),
-                  ImmutableMap.of(
-                      BUILD_RULE_TYPE_CONTEXT_KEY,
-                      rule.getType(),
-                      STEP_TYPE_CONTEXT_KEY,
-                      StepType.BUILD_STEP.toString()))),
+          getExecutionContextForStep(executionContext, rule, step, StepType.BUILD_STEP),
           step,
           optionalTarget);
 
@@ -1433,14 +1453,7 @@ public class CachingBuildEngine implements BuildEngine {
     Optional<BuildTarget> optionalTarget = Optional.of(rule.getBuildTarget());
     for (Step step : postBuildSteps) {
       stepRunner.runStepForBuildTarget(
-          context.withProcessExecutor(
-              new ContextualProcessExecutor(
-                  context.getProcessExecutor(),
-                  ImmutableMap.of(
-                      BUILD_RULE_TYPE_CONTEXT_KEY,
-                      rule.getType(),
-                      STEP_TYPE_CONTEXT_KEY,
-                      StepType.POST_BUILD_STEP.toString()))),
+          getExecutionContextForStep(context, rule, step, StepType.POST_BUILD_STEP),
           step,
           optionalTarget);
 
@@ -1454,6 +1467,30 @@ public class CachingBuildEngine implements BuildEngine {
     LOG.debug("Finished running post-build steps for %s", rule);
   }
 
+  /**
+   * Tags every process launched by {@code step} with the rule and step it was launched for, so
+   * the resource consumption reported for it by {@link com.facebook.buck.util.perf.ProcessTracker}
+   * can be attributed to individual rules.
+   */
+  private static ExecutionContext getExecutionContextForStep(
+      ExecutionContext context,
+      BuildRule rule,
+      Step step,
+      StepType stepType) {
+    return context.withProcessExecutor(
+        new ContextualProcessExecutor(
+            context.getProcessExecutor(),
+            ImmutableMap.of(
+                BUILD_RULE_TYPE_CONTEXT_KEY,
+                rule.getType(),
+                STEP_TYPE_CONTEXT_KEY,
+                stepType.toString(),
+                BUILD_TARGET_CONTEXT_KEY,
+                rule.getFullyQualifiedName(),
+                STEP_NAME_CONTEXT_KEY,
+                step.getShortName())));
+  }
+
   private <T> void doInitializeFromDisk(
       InitializableFromDisk<T> initializable,
       OnDiskBuildInfo onDiskBuildInfo)
@@ -1522,7 +1559,7 @@ public class CachingBuildEngine implements BuildEngine {
     // Build the dep-file rule key.  If any inputs are no longer on disk, this means something
     // changed and a dep-file based rule key can't be calculated.
     ImmutableList<DependencyFileEntry> inputs = depFile.get().stream()
-        .map(MoreFunctions.fromJsonFunction(objectMapper, DependencyFileEntry.class))
+        .map(this::parseDepFileEntry)
         .collect(MoreCollectors.toImmutableList());
 
     try {
@@ -1536,6 +1573,15 @@ public class CachingBuildEngine implements BuildEngine {
     }
   }
 
+  private DependencyFileEntry parseDepFileEntry(String entry) {
+    try {
+      return parsedDepFileEntries.getUnchecked(entry);
+    } catch (UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw e;
+    }
+  }
+
   @VisibleForTesting
   protected Path getManifestPath(BuildRule rule) {
     return BuildInfo.getPathToMetadataDirectory(rule.getBuildTarget(), rule.getProjectFilesystem())
@@ -1862,6 +1908,18 @@ public class CachingBuildEngine implements BuildEngine {
     CACHE,
   }
 
+  /**
+   * Where to store the build metadata (rule keys, output hashes, ...) of built rules.
+   */
+  public enum MetadataStorage {
+
+    // One small file per metadata key, in each rule's metadata directory.
+    FILESYSTEM,
+
+    // A single append-only log per cell (see LogStructuredBuildInfoStore).
+    LOG,
+  }
+
   // Wrap an async function in rule resume/suspend events.
   private <F, T> AsyncFunction<F, T> ruleAsyncFunction(
       final BuildRule rule,
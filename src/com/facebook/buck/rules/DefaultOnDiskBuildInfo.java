@@ -42,22 +42,49 @@ public class DefaultOnDiskBuildInfo implements OnDiskBuildInfo {
 
   private static final Logger LOG = Logger.get(DefaultOnDiskBuildInfo.class);
 
+  private final BuildTarget target;
   private final ProjectFilesystem projectFilesystem;
   private final Path metadataDirectory;
+  private final BuildInfoStore buildInfoStore;
+  private final Optional<OnDiskBuildInfoCache> cache;
   private final ObjectMapper objectMapper;
 
   public DefaultOnDiskBuildInfo(
       BuildTarget target,
       ProjectFilesystem projectFilesystem,
       ObjectMapper objectMapper) {
+    this(
+        target,
+        projectFilesystem,
+        new FilesystemBuildInfoStore(projectFilesystem),
+        Optional.empty(),
+        objectMapper);
+  }
+
+  public DefaultOnDiskBuildInfo(
+      BuildTarget target,
+      ProjectFilesystem projectFilesystem,
+      BuildInfoStore buildInfoStore,
+      Optional<OnDiskBuildInfoCache> cache,
+      ObjectMapper objectMapper) {
+    this.target = target;
     this.projectFilesystem = projectFilesystem;
     this.metadataDirectory = BuildInfo.getPathToMetadataDirectory(target, projectFilesystem);
+    this.buildInfoStore = buildInfoStore;
+    this.cache = cache;
     this.objectMapper = objectMapper;
   }
 
   @Override
   public Optional<String> getValue(String key) {
-    return projectFilesystem.readFileIfItExists(metadataDirectory.resolve(key));
+    if (cache.isPresent()) {
+      return cache.get().getValue(
+          projectFilesystem,
+          metadataDirectory,
+          key,
+          () -> buildInfoStore.readMetadata(target, key));
+    }
+    return buildInfoStore.readMetadata(target, key);
   }
 
   @Override
@@ -166,7 +193,14 @@ public class DefaultOnDiskBuildInfo implements OnDiskBuildInfo {
 
   @Override
   public void deleteExistingMetadata() throws IOException {
-    projectFilesystem.deleteRecursivelyIfExists(metadataDirectory);
+    try {
+      projectFilesystem.deleteRecursivelyIfExists(metadataDirectory);
+      buildInfoStore.deleteMetadata(target);
+    } finally {
+      if (cache.isPresent()) {
+        cache.get().invalidate(projectFilesystem, metadataDirectory);
+      }
+    }
   }
 
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.model.BuildTarget;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link BuildInfoStore} which keeps each metadata value in its own file in the rule's metadata
+ * directory.
+ */
+public class FilesystemBuildInfoStore implements BuildInfoStore {
+
+  private final ProjectFilesystem filesystem;
+  private final AtomicBoolean logDiscarded = new AtomicBoolean();
+
+  public FilesystemBuildInfoStore(ProjectFilesystem filesystem) {
+    this.filesystem = filesystem;
+  }
+
+  @Override
+  public Optional<String> readMetadata(BuildTarget buildTarget, String key) {
+    return filesystem.readFileIfItExists(getMetadataDirectory(buildTarget).resolve(key));
+  }
+
+  @Override
+  public void updateMetadata(
+      BuildTarget buildTarget,
+      Map<String, String> metadata) throws IOException {
+    discardLog();
+    Path metadataDirectory = getMetadataDirectory(buildTarget);
+    filesystem.mkdirs(metadataDirectory);
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      filesystem.writeContentsToPath(entry.getValue(), metadataDirectory.resolve(entry.getKey()));
+    }
+  }
+
+  @Override
+  public void deleteMetadata(BuildTarget buildTarget) throws IOException {
+    discardLog();
+    filesystem.deleteRecursivelyIfExists(getMetadataDirectory(buildTarget));
+  }
+
+  @Override
+  public void refresh() {
+    // Nothing is held in memory.
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * A {@link LogStructuredBuildInfoStore} left over from building with the other storage would
+   * hold stale rule keys once we write metadata it doesn't know about, if we ever switched back.
+   */
+  private void discardLog() throws IOException {
+    if (logDiscarded.compareAndSet(false, true)) {
+      filesystem.deleteFileAtPathIfExists(LogStructuredBuildInfoStore.getPath(filesystem));
+    }
+  }
+
+  private Path getMetadataDirectory(BuildTarget buildTarget) {
+    return BuildInfo.getPathToMetadataDirectory(buildTarget, filesystem);
+  }
+}
@@ -0,0 +1,511 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.log.Logger;
+import com.facebook.buck.model.BuildTarget;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link BuildInfoStore} which keeps the build metadata of every rule in a cell in a single
+ * append-only log under buck-out, rather than in several small files per rule.
+ * <p>
+ * Each update appends one record holding the rule's complete build metadata, so updates are atomic
+ * per rule, and an in-memory index maps each rule to its latest record.  Records carry a CRC, and a
+ * torn record left behind by a crash is truncated away the next time the log is read.  Once most of
+ * the log is superseded records, it is compacted into a new file which atomically replaces it.
+ * This is checked after every update, so that stores kept open by the daemon don't grow without
+ * bound.
+ * <p>
+ * Writers hold an exclusive lock on the log and first read any records appended by other buck
+ * processes, so several processes may share a log.  Readers only need the in-memory index and a
+ * positional read.  Keys which aren't in the log are read from the rule's metadata directory, which
+ * both covers metadata packaged into artifacts and migrates rules built with
+ * {@link FilesystemBuildInfoStore}.
+ */
+public class LogStructuredBuildInfoStore implements BuildInfoStore {
+
+  private static final Logger LOG = Logger.get(LogStructuredBuildInfoStore.class);
+
+  private static final int MAGIC = 0x4255434b;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+
+  // Each record is its payload length and CRC, followed by the payload.
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+
+  /**
+   * Logs smaller than this are never compacted.
+   */
+  @VisibleForTesting
+  static final long MIN_COMPACTION_SIZE = 4 * 1024 * 1024;
+
+  private final ProjectFilesystem filesystem;
+  private final Path path;
+
+  /**
+   * The latest record for each rule with build metadata, keyed by fully qualified target name.
+   */
+  private final ConcurrentMap<String, RecordLocation> index = new ConcurrentHashMap<>();
+
+  /**
+   * Readers hold the read lock, and the write lock is only taken when the file is swapped out.
+   * Writers synchronize on this object.
+   */
+  private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+
+  private FileChannel channel;
+  @Nullable
+  private FileLock fileLock;
+  @Nullable
+  private Object fileKey;
+  private long end;
+  private long liveBytes;
+
+  public LogStructuredBuildInfoStore(ProjectFilesystem filesystem) throws IOException {
+    this.filesystem = filesystem;
+    this.path = filesystem.resolve(getPath(filesystem));
+    Files.createDirectories(path.getParent());
+    this.channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    synchronized (this) {
+      withFileLock(() -> {
+        load();
+        compactIfNeeded();
+      });
+    }
+  }
+
+  public static Path getPath(ProjectFilesystem filesystem) {
+    return filesystem.getBuckPaths().getScratchDir().resolve(".build_info_store");
+  }
+
+  @Override
+  public Optional<String> readMetadata(BuildTarget buildTarget, String key) {
+    channelLock.readLock().lock();
+    try {
+      RecordLocation location = index.get(buildTarget.getFullyQualifiedName());
+      Record record = location == null ? null : readRecord(channel, location.offset);
+      if (record != null && record.getEntries().containsKey(key)) {
+        return Optional.of(record.getEntries().get(key));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading build metadata from " + path, e);
+    } finally {
+      channelLock.readLock().unlock();
+    }
+    return filesystem.readFileIfItExists(
+        BuildInfo.getPathToMetadataDirectory(buildTarget, filesystem).resolve(key));
+  }
+
+  @Override
+  public synchronized void updateMetadata(
+      BuildTarget buildTarget,
+      Map<String, String> metadata) throws IOException {
+    String target = buildTarget.getFullyQualifiedName();
+    withFileLock(() -> {
+      catchUp();
+      Map<String, String> entries = new LinkedHashMap<>();
+      RecordLocation existing = index.get(target);
+      Record existingRecord = existing == null ? null : readRecord(channel, existing.offset);
+      if (existingRecord != null) {
+        entries.putAll(existingRecord.getEntries());
+      }
+      entries.putAll(metadata);
+      append(new Record(PUT, target, ImmutableMap.copyOf(entries)));
+      compactIfNeeded();
+    });
+  }
+
+  @Override
+  public synchronized void deleteMetadata(BuildTarget buildTarget) throws IOException {
+    String target = buildTarget.getFullyQualifiedName();
+    withFileLock(() -> {
+      catchUp();
+      if (index.containsKey(target)) {
+        append(new Record(DELETE, target, ImmutableMap.of()));
+        compactIfNeeded();
+      }
+    });
+  }
+
+  @Override
+  public synchronized void refresh() throws IOException {
+    withFileLock(() -> {
+      catchUp();
+      compactIfNeeded();
+    });
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  @VisibleForTesting
+  synchronized long getSize() {
+    return end;
+  }
+
+  /**
+   * Reads the whole log into the index.  Must hold the file lock.
+   */
+  private void load() throws IOException {
+    index.clear();
+    end = HEADER_SIZE;
+    liveBytes = 0;
+    fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (!readFully(channel, header, 0) ||
+        header.getInt(0) != MAGIC ||
+        header.getInt(4) != VERSION) {
+      if (channel.size() > 0) {
+        LOG.warn("Discarding build metadata in %s with unknown format.", path);
+      }
+      channel.truncate(0);
+      header.clear();
+      header.putInt(MAGIC).putInt(VERSION).flip();
+      writeFully(channel, header, 0);
+      return;
+    }
+    catchUp();
+  }
+
+  /**
+   * Brings the index up to date with records appended by other processes, or reloads it if another
+   * process has replaced or removed the log.  Must hold the file lock.
+   */
+  private void catchUp() throws IOException {
+    Object currentFileKey;
+    try {
+      currentFileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    } catch (NoSuchFileException e) {
+      // buck-out was removed from under us.
+      reopen();
+      return;
+    }
+    if (!Objects.equals(currentFileKey, fileKey)) {
+      reopen();
+      return;
+    }
+
+    long size = channel.size();
+    while (end < size) {
+      Record record = readRecord(channel, end);
+      if (record == null) {
+        // Writers append whole records while holding the file lock, so this is the remains of a
+        // write interrupted by a crash.
+        LOG.warn("Truncating corrupt build metadata in %s at offset %d.", path, end);
+        channel.truncate(end);
+        break;
+      }
+      apply(record, end);
+      end += record.getSize();
+    }
+  }
+
+  private void reopen() throws IOException {
+    channelLock.writeLock().lock();
+    try {
+      LOG.debug("Build metadata log %s was replaced, reloading it.", path);
+      channel.close();
+      Files.createDirectories(path.getParent());
+      channel = FileChannel.open(
+          path,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      // The caller's lock went away with the old channel.
+      fileLock = channel.lock();
+      load();
+    } finally {
+      channelLock.writeLock().unlock();
+    }
+  }
+
+  private void append(Record record) throws IOException {
+    ByteBuffer buffer = record.encode();
+    writeFully(channel, buffer, end);
+    apply(record, end);
+    end += record.getSize();
+  }
+
+  private void apply(Record record, long offset) {
+    RecordLocation previous;
+    if (record.getType() == PUT) {
+      previous = index.put(record.getTarget(), new RecordLocation(offset, record.getSize()));
+      liveBytes += record.getSize();
+    } else {
+      previous = index.remove(record.getTarget());
+    }
+    if (previous != null) {
+      liveBytes -= previous.size;
+    }
+  }
+
+  /**
+   * Rewrites the log with only the latest record of each rule, once most of it is garbage.  The new
+   * log replaces the old one with an atomic move, so a crash leaves one or the other intact.
+   * Must hold the file lock.
+   */
+  private void compactIfNeeded() throws IOException {
+    // Without a file key we couldn't tell other processes that the log was replaced.
+    if (fileKey == null || end < MIN_COMPACTION_SIZE || liveBytes * 2 > end) {
+      return;
+    }
+    LOG.debug("Compacting %s from %d to %d bytes.", path, end, HEADER_SIZE + liveBytes);
+
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    Map<String, RecordLocation> compacted = new HashMap<>();
+    long offset = HEADER_SIZE;
+    try (FileChannel out = FileChannel.open(
+        tmp,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).flip();
+      writeFully(out, header, 0);
+      for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+        ByteBuffer record = ByteBuffer.allocate(entry.getValue().size);
+        if (!readFully(channel, record, entry.getValue().offset)) {
+          throw new IOException("Unexpected end of " + path);
+        }
+        record.flip();
+        writeFully(out, record, offset);
+        compacted.put(entry.getKey(), new RecordLocation(offset, entry.getValue().size));
+        offset += entry.getValue().size;
+      }
+      out.force(true);
+    }
+
+    channelLock.writeLock().lock();
+    try {
+      Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      channel.close();
+      channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      fileLock = channel.lock();
+      fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+      index.clear();
+      index.putAll(compacted);
+      end = offset;
+      liveBytes = offset - HEADER_SIZE;
+    } finally {
+      channelLock.writeLock().unlock();
+    }
+    // Another process may have appended to the new log between the move and taking its lock.
+    catchUp();
+  }
+
+  /**
+   * Runs {@code operation} while holding an exclusive lock on the log, which serializes writers
+   * across processes.  Must be synchronized on this store.
+   */
+  private void withFileLock(LockedOperation operation) throws IOException {
+    fileLock = channel.lock();
+    try {
+      operation.run();
+    } finally {
+      // The operation may have swapped the channel (and so the lock) for a new one.
+      if (fileLock.isValid()) {
+        fileLock.release();
+      }
+      fileLock = null;
+    }
+  }
+
+  private interface LockedOperation {
+    void run() throws IOException;
+  }
+
+  /**
+   * @return the record at {@code offset}, or {@code null} if it is truncated or corrupt.
+   */
+  @Nullable
+  private static Record readRecord(FileChannel channel, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    if (!readFully(channel, header, offset)) {
+      return null;
+    }
+    int length = header.getInt(0);
+    int checksum = header.getInt(4);
+    if (length <= 0 || offset + RECORD_HEADER_SIZE + length > channel.size()) {
+      return null;
+    }
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    if (!readFully(channel, payload, offset + RECORD_HEADER_SIZE)) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.array());
+    if ((int) crc.getValue() != checksum) {
+      return null;
+    }
+    return Record.decode(payload.array());
+  }
+
+  private static boolean readFully(
+      FileChannel channel,
+      ByteBuffer buffer,
+      long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeFully(
+      FileChannel channel,
+      ByteBuffer buffer,
+      long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+
+  private static class RecordLocation {
+    private final long offset;
+    private final int size;
+
+    private RecordLocation(long offset, int size) {
+      this.offset = offset;
+      this.size = size;
+    }
+  }
+
+  private static class Record {
+    private final byte type;
+    private final String target;
+    private final ImmutableMap<String, String> entries;
+    private final byte[] payload;
+
+    private Record(byte type, String target, ImmutableMap<String, String> entries) {
+      this(type, target, entries, serialize(type, target, entries));
+    }
+
+    private Record(
+        byte type,
+        String target,
+        ImmutableMap<String, String> entries,
+        byte[] payload) {
+      this.type = type;
+      this.target = target;
+      this.entries = entries;
+      this.payload = payload;
+    }
+
+    public byte getType() {
+      return type;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    public ImmutableMap<String, String> getEntries() {
+      return entries;
+    }
+
+    public int getSize() {
+      return RECORD_HEADER_SIZE + payload.length;
+    }
+
+    public ByteBuffer encode() {
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      ByteBuffer buffer = ByteBuffer.allocate(getSize());
+      buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+      return buffer;
+    }
+
+    private static byte[] serialize(
+        byte type,
+        String target,
+        ImmutableMap<String, String> entries) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeByte(type);
+        out.writeUTF(target);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+          out.writeUTF(entry.getKey());
+          // Values such as recorded output hashes can exceed writeUTF's 64k limit.
+          byte[] value = entry.getValue().getBytes(Charsets.UTF_8);
+          out.writeInt(value.length);
+          out.write(value);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return bytes.toByteArray();
+    }
+
+    private static Record decode(byte[] payload) throws IOException {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+      byte type = in.readByte();
+      String target = in.readUTF();
+      int count = in.readInt();
+      ImmutableMap.Builder<String, String> entries = ImmutableMap.builder();
+      for (int i = 0; i < count; i++) {
+        String key = in.readUTF();
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        entries.put(key, new String(value, Charsets.UTF_8));
+      }
+      return new Record(type, target, entries.build(), payload);
+    }
+  }
+}
@@ -44,13 +44,15 @@ import java.util.Optional;
 
 public class Manifest {
 
-  private static final int VERSION = 0;
+  // Version 1 stopped sharing a hash entry between different headers with identical contents,
+  // which let a change to the second header go unnoticed.
+  private static final int VERSION = 1;
 
   private final List<String> headers;
   private final Map<String, Integer> headerIndices;
 
   private final List<Pair<Integer, HashCode>> hashes;
-  private final Map<HashCode, Integer> hashIndices;
+  private final Map<Pair<Integer, HashCode>, Integer> hashIndices;
 
   private final List<Pair<RuleKey, int[]>> entries;
 
@@ -66,12 +68,20 @@ public class Manifest {
   }
 
   /**
-   * Deserialize an existing manifest from the given {@link InputStream}.
+   * Deserialize an existing manifest from the given {@link InputStream}.  A manifest written in
+   * a different format version is read as an empty one, as it's just a cache of previous builds.
    */
   public Manifest(InputStream rawInput) throws IOException {
     DataInputStream input = new DataInputStream(rawInput);
 
-    Preconditions.checkState(input.readInt() == VERSION);
+    if (input.readInt() != VERSION) {
+      headers = new ArrayList<>();
+      headerIndices = new HashMap<>();
+      hashes = new ArrayList<>();
+      hashIndices = new HashMap<>();
+      entries = new ArrayList<>();
+      return;
+    }
 
     int numberOfHeaders = input.readInt();
     headers = new ArrayList<>(numberOfHeaders);
@@ -88,8 +98,9 @@ public class Manifest {
     for (int index = 0; index < numberOfHashes; index++) {
       int headerIndex = input.readInt();
       HashCode headerHash = HashCode.fromString(input.readUTF());
-      hashes.add(new Pair<>(headerIndex, headerHash));
-      hashIndices.put(headerHash, index);
+      Pair<Integer, HashCode> hash = new Pair<>(headerIndex, headerHash);
+      hashes.add(hash);
+      hashIndices.put(hash, index);
     }
 
     int numberOfEntries = input.readInt();
@@ -113,11 +124,12 @@ public class Manifest {
       headerIndices.put(header, headerIndex);
     }
 
-    Integer hashIndex = hashIndices.get(hash);
+    Pair<Integer, HashCode> headerHash = new Pair<>(headerIndex, hash);
+    Integer hashIndex = hashIndices.get(headerHash);
     if (hashIndex == null) {
-      hashes.add(new Pair<>(headerIndex, hash));
+      hashes.add(headerHash);
       hashIndex = hashes.size() - 1;
-      hashIndices.put(hash, hashIndex);
+      hashIndices.put(headerHash, hashIndex);
     }
 
     return hashIndex;
@@ -150,27 +162,47 @@ public class Manifest {
     }
   }
 
+  private static Optional<HashCode> hashHeader(
+      FileHashCache fileHashCache,
+      SourcePathResolver resolver,
+      ImmutableListMultimap<String, SourcePath> universe,
+      String header)
+      throws IOException {
+    ImmutableList<SourcePath> candidates = universe.get(header);
+    if (candidates.isEmpty()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(hashSourcePathGroup(fileHashCache, resolver, candidates));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+  }
+
   private boolean hashesMatch(
       FileHashCache fileHashCache,
       SourcePathResolver resolver,
       ImmutableListMultimap<String, SourcePath> universe,
+      Map<Integer, Optional<HashCode>> onDiskHeaderHashes,
+      Boolean[] hashMatches,
       int[] hashIndices)
       throws IOException {
     for (int hashIndex : hashIndices) {
-      Pair<Integer, HashCode> hashEntry = hashes.get(hashIndex);
-      String header = headers.get(hashEntry.getFirst());
-      ImmutableList<SourcePath> candidates = universe.get(header);
-      if (candidates.isEmpty()) {
-        return false;
-      }
-      HashCode onDiskHeaderHash;
-      try {
-        onDiskHeaderHash = hashSourcePathGroup(fileHashCache, resolver, candidates);
-      } catch (NoSuchFileException e) {
-        return false;
+      Boolean matches = hashMatches[hashIndex];
+      if (matches == null) {
+        Pair<Integer, HashCode> hashEntry = hashes.get(hashIndex);
+        int headerIndex = hashEntry.getFirst();
+        Optional<HashCode> onDiskHeaderHash = onDiskHeaderHashes.get(headerIndex);
+        if (onDiskHeaderHash == null) {
+          onDiskHeaderHash =
+              hashHeader(fileHashCache, resolver, universe, headers.get(headerIndex));
+          onDiskHeaderHashes.put(headerIndex, onDiskHeaderHash);
+        }
+        matches = onDiskHeaderHash.isPresent() &&
+            onDiskHeaderHash.get().equals(hashEntry.getSecond());
+        hashMatches[hashIndex] = matches;
       }
-      HashCode headerHash = hashEntry.getSecond();
-      if (!headerHash.equals(onDiskHeaderHash)) {
+      if (!matches) {
         return false;
       }
     }
@@ -188,8 +220,19 @@ public class Manifest {
       throws IOException {
     ImmutableListMultimap<String, SourcePath> mappedUniverse =
         Multimaps.index(universe, sourcePathToManifestHeaderFunction(resolver));
+    // Entries share most of their headers, so remember both the on-disk hash of each header and
+    // whether each recorded hash matched it.  Every header is then hashed at most once per lookup,
+    // and an entry is rejected by its first recorded hash that's already known not to match.
+    Map<Integer, Optional<HashCode>> onDiskHeaderHashes = new HashMap<>();
+    Boolean[] hashMatches = new Boolean[hashes.size()];
     for (Pair<RuleKey, int[]> entry : entries) {
-      if (hashesMatch(fileHashCache, resolver, mappedUniverse, entry.getSecond())) {
+      if (hashesMatch(
+              fileHashCache,
+              resolver,
+              mappedUniverse,
+              onDiskHeaderHashes,
+              hashMatches,
+              entry.getSecond())) {
         return Optional.of(entry.getFirst());
       }
     }
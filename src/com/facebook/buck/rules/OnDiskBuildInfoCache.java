@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.log.Logger;
+import com.facebook.buck.model.BuildId;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Caches the contents of rule metadata directories across the builds run by a single buck process,
+ * so that a no-op build can check every rule's recorded rule keys without re-reading the same small
+ * files each time.
+ * <p>
+ * Watchman doesn't report changes under buck-out, so the cache relies on every writer of metadata
+ * ({@link BuildInfoRecorder}, {@link DefaultOnDiskBuildInfo#deleteExistingMetadata()} and artifact
+ * cache fetches in {@link CachingBuildEngine}) updating it.  Builds run by other buck processes
+ * against the same buck-out are detected with a stamp file, which is kept separately in the
+ * buck-out of every cell the cache is used for: see {@link #startBuild(BuildId)}.
+ */
+public class OnDiskBuildInfoCache {
+
+  private static final Logger LOG = Logger.get(OnDiskBuildInfoCache.class);
+
+  private static final String STAMP_FILE_NAME = ".metadata_cache_stamp";
+
+  /**
+   * Cached metadata for each cell, keyed by the absolute path of the cell's buck-out.
+   */
+  private final ConcurrentMap<Path, CellCache> cells = new ConcurrentHashMap<>();
+
+  @Nullable
+  private volatile BuildId currentBuildId = null;
+
+  /**
+   * @return the cached value for {@code key}, calling {@code loader} to read it on a miss.
+   */
+  public Optional<String> getValue(
+      ProjectFilesystem filesystem,
+      Path metadataDirectory,
+      String key,
+      Supplier<Optional<String>> loader) {
+    Optional<ConcurrentMap<String, Optional<String>>> directory =
+        getDirectory(filesystem, metadataDirectory);
+    if (!directory.isPresent()) {
+      return loader.get();
+    }
+    return directory.get().computeIfAbsent(key, k -> loader.get());
+  }
+
+  /**
+   * Records a value which has just been written to {@code metadataDirectory}.
+   */
+  public void putValue(
+      ProjectFilesystem filesystem,
+      Path metadataDirectory,
+      String key,
+      String value) {
+    getDirectory(filesystem, metadataDirectory)
+        .ifPresent(directory -> directory.put(key, Optional.of(value)));
+  }
+
+  /**
+   * Forgets everything cached for {@code metadataDirectory}.  Must be called whenever the contents
+   * of the directory are changed other than through {@link #putValue}.
+   */
+  public void invalidate(ProjectFilesystem filesystem, Path metadataDirectory) {
+    getCell(filesystem).invalidate(filesystem.resolve(metadataDirectory));
+  }
+
+  public void invalidateAll() {
+    cells.clear();
+  }
+
+  /**
+   * Called at the start of each build.  The first time the build uses the cache for a cell, the
+   * stamp file in that cell's buck-out is compared with the one this cache last wrote there.  If
+   * they differ, some other buck process has built in that cell in the meantime (or its buck-out
+   * was removed), so everything cached for the cell is dropped.  A fresh stamp for this build is
+   * then written, which in turn lets other buck processes notice this build.
+   */
+  public void startBuild(BuildId buildId) {
+    currentBuildId = buildId;
+  }
+
+  private Optional<ConcurrentMap<String, Optional<String>>> getDirectory(
+      ProjectFilesystem filesystem,
+      Path metadataDirectory) {
+    return getCell(filesystem).getDirectory(filesystem.resolve(metadataDirectory));
+  }
+
+  private CellCache getCell(ProjectFilesystem filesystem) {
+    return cells.computeIfAbsent(
+        filesystem.resolve(filesystem.getBuckPaths().getBuckOut()),
+        buckOut -> new CellCache(filesystem));
+  }
+
+  private class CellCache {
+    private final ProjectFilesystem filesystem;
+
+    /**
+     * Metadata values, keyed by the absolute path of the metadata directory and then by metadata
+     * key.  Missing files are cached as absent values.  Directories are only softly referenced, so
+     * they are simply read again if memory runs low.
+     */
+    private final ConcurrentMap<Path, ConcurrentMap<String, Optional<String>>> directories =
+        CacheBuilder.newBuilder()
+            .softValues()
+            .<Path, ConcurrentMap<String, Optional<String>>>build()
+            .asMap();
+
+    @Nullable
+    private BuildId checkedForBuildId = null;
+
+    @Nullable
+    private String lastStamp = null;
+
+    private CellCache(ProjectFilesystem filesystem) {
+      this.filesystem = filesystem;
+    }
+
+    public Optional<ConcurrentMap<String, Optional<String>>> getDirectory(Path directory) {
+      if (!checkStamp()) {
+        return Optional.empty();
+      }
+      return Optional.of(
+          directories.computeIfAbsent(directory, dir -> new ConcurrentHashMap<>()));
+    }
+
+    public void invalidate(Path directory) {
+      checkStamp();
+      directories.remove(directory);
+    }
+
+    /**
+     * @return whether the cached values can be used, i.e. whether the stamp file for this cell is
+     *     known to be the one written for the current build.
+     */
+    private synchronized boolean checkStamp() {
+      BuildId buildId = currentBuildId;
+      if (buildId == null || buildId.equals(checkedForBuildId)) {
+        return true;
+      }
+      Path stampPath = filesystem.getBuckPaths().getBuckOut().resolve(STAMP_FILE_NAME);
+      Optional<String> stamp = filesystem.readFileIfItExists(stampPath);
+      if (lastStamp == null || !stamp.equals(Optional.of(lastStamp))) {
+        if (!directories.isEmpty()) {
+          LOG.debug(
+              "Metadata cache stamp changed in %s, invalidating cached metadata.",
+              filesystem.getRootPath());
+        }
+        directories.clear();
+        lastStamp = null;
+      }
+      try {
+        filesystem.createParentDirs(stampPath);
+        filesystem.writeContentsToPath(buildId.toString(), stampPath);
+      } catch (IOException e) {
+        LOG.warn(e, "Couldn't write metadata cache stamp in %s.", filesystem.getRootPath());
+        directories.clear();
+        return false;
+      }
+      lastStamp = buildId.toString();
+      checkedForBuildId = buildId;
+      return true;
+    }
+  }
+}
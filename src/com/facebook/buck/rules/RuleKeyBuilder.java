@@ -35,11 +35,12 @@ import com.google.common.primitives.Primitives;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.SortedMap;
-import java.util.Stack;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -54,7 +55,7 @@ public abstract class RuleKeyBuilder<T> implements RuleKeyObjectSink {
   private final Hasher hasher;
   private final FileHashLoader hashLoader;
   private final RuleKeyLogger ruleKeyLogger;
-  private Stack<String> keyStack;
+  private final Deque<String> keyStack;
 
   public RuleKeyBuilder(
       SourcePathResolver resolver,
@@ -63,7 +64,7 @@ public abstract class RuleKeyBuilder<T> implements RuleKeyObjectSink {
     this.resolver = resolver;
     this.hasher = Hashing.sha1().newHasher();
     this.hashLoader = hashLoader;
-    this.keyStack = new Stack<>();
+    this.keyStack = new ArrayDeque<>();
     this.ruleKeyLogger = ruleKeyLogger;
   }
 
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import com.facebook.buck.io.MoreFiles;
+import com.facebook.buck.io.MorePaths;
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.log.Logger;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.ImmutableFlavor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reclaims space in buck-out by moving the outputs of rules which are no longer needed to the
+ * trash, where they are deleted in the background.
+ * <p>
+ * A rule's outputs are kept if it is in the given set of live rules, or if its metadata was written
+ * after the cutoff (i.e. it was built or fetched from the cache recently).  Any other rule with
+ * metadata on disk is stale: its recorded outputs and its metadata are removed together, so that it
+ * is rebuilt rather than trusted if it comes back.  Files no rule recorded are removed if nothing
+ * under them was modified after the cutoff, except in the package directories of live rules, where
+ * rules which can't be fetched from the cache may keep files they didn't record.
+ */
+public class StaleOutputCollector {
+
+  private static final Logger LOG = Logger.get(StaleOutputCollector.class);
+
+  private final ProjectFilesystem filesystem;
+  private final BuildInfoStore buildInfoStore;
+  private final ObjectMapper objectMapper;
+
+  public StaleOutputCollector(
+      ProjectFilesystem filesystem,
+      BuildInfoStore buildInfoStore,
+      ObjectMapper objectMapper) {
+    this.filesystem = filesystem;
+    this.buildInfoStore = buildInfoStore;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Moves stale outputs under {@code trashDirectory}, keeping their paths relative to the project
+   * root.
+   *
+   * @return the paths which were moved, with the total size of the files under each.
+   */
+  public ImmutableSortedMap<Path, Long> collect(
+      Iterable<BuildRule> liveRules,
+      FileTime cutoff,
+      Path trashDirectory) throws IOException {
+    ImmutableList<Path> outputRoots = ImmutableList.of(
+        filesystem.getBuckPaths().getGenDir(),
+        filesystem.getBuckPaths().getScratchDir(),
+        filesystem.getBuckPaths().getAnnotationDir());
+
+    Set<Path> liveMetadataDirectories = new HashSet<>();
+    Set<Path> livePackageDirectories = new HashSet<>();
+    for (BuildRule rule : liveRules) {
+      if (!rule.getProjectFilesystem().getRootPath().equals(filesystem.getRootPath())) {
+        continue;
+      }
+      BuildTarget target = rule.getBuildTarget();
+      liveMetadataDirectories.add(BuildInfo.getPathToMetadataDirectory(target, filesystem));
+      for (Path root : outputRoots) {
+        livePackageDirectories.add(root.resolve(target.getBasePath()));
+      }
+    }
+
+    // Sort every rule with metadata on disk into those we keep and those which are stale.
+    Set<Path> kept = new HashSet<>();
+    TreeSet<Path> stale = new TreeSet<>();
+    Set<BuildTarget> staleTargets = new HashSet<>();
+    for (Path metadataDirectory : findMetadataDirectories()) {
+      ImmutableList<Path> recordedPaths = readRecordedPaths(metadataDirectory);
+      if (liveMetadataDirectories.contains(metadataDirectory) ||
+          getNewestModification(metadataDirectory).compareTo(cutoff) >= 0) {
+        kept.add(metadataDirectory.getParent());
+        kept.addAll(recordedPaths);
+      } else {
+        stale.add(metadataDirectory.getParent());
+        stale.addAll(recordedPaths);
+        getTargetForMetadataDirectory(metadataDirectory).ifPresent(staleTargets::add);
+      }
+    }
+
+    // Directories we have to look inside of, as they hold something we keep.
+    Set<Path> ancestorsOfKept = new HashSet<>();
+    for (Path path : kept) {
+      addAncestors(path, ancestorsOfKept);
+    }
+    stale.removeIf(path -> ancestorsOfKept.contains(path) || isUnder(path, kept));
+    for (Path path : livePackageDirectories) {
+      ancestorsOfKept.add(path);
+      addAncestors(path, ancestorsOfKept);
+    }
+    for (Path root : outputRoots) {
+      findUnrecordedStaleOutputs(
+          root,
+          root,
+          cutoff,
+          kept,
+          ancestorsOfKept,
+          livePackageDirectories,
+          stale);
+    }
+
+    // Only move the outermost of nested paths.
+    Map<Path, Long> sizes = new TreeMap<>();
+    for (Path path : stale) {
+      if (!isUnder(path.getParent(), stale) &&
+          filesystem.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+        sizes.put(path, getSize(path));
+      }
+    }
+
+    // Forget the stale rules before their outputs go, so they can't be trusted in the meantime.
+    for (BuildTarget target : staleTargets) {
+      buildInfoStore.deleteMetadata(target);
+    }
+    ImmutableSortedMap.Builder<Path, Long> moved = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<Path, Long> entry : sizes.entrySet()) {
+      if (moveToTrash(entry.getKey(), trashDirectory)) {
+        moved.put(entry);
+      }
+    }
+    return moved.build();
+  }
+
+  private void findUnrecordedStaleOutputs(
+      Path root,
+      Path directory,
+      FileTime cutoff,
+      Set<Path> kept,
+      Set<Path> ancestorsOfKept,
+      Set<Path> livePackageDirectories,
+      Set<Path> stale) throws IOException {
+    for (Path child : listDirectory(directory)) {
+      if (kept.contains(child) || stale.contains(child)) {
+        continue;
+      }
+      if (ancestorsOfKept.contains(child)) {
+        if (filesystem.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          findUnrecordedStaleOutputs(
+              root,
+              child,
+              cutoff,
+              kept,
+              ancestorsOfKept,
+              livePackageDirectories,
+              stale);
+        }
+        continue;
+      }
+      if (livePackageDirectories.contains(directory)) {
+        continue;
+      }
+      // Buck's own bookkeeping, such as the build metadata log.
+      if (directory.equals(root) && child.getFileName().toString().startsWith(".")) {
+        continue;
+      }
+      if (getNewestModification(child).compareTo(cutoff) < 0) {
+        stale.add(child);
+      } else if (filesystem.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+        // Something under here is recent, but its siblings may not be.
+        findUnrecordedStaleOutputs(
+            root,
+            child,
+            cutoff,
+            kept,
+            ancestorsOfKept,
+            livePackageDirectories,
+            stale);
+      }
+    }
+  }
+
+  private ImmutableList<Path> findMetadataDirectories() throws IOException {
+    ImmutableList.Builder<Path> metadataDirectories = ImmutableList.builder();
+    Path scratchDir = filesystem.resolve(filesystem.getBuckPaths().getScratchDir());
+    if (!Files.isDirectory(scratchDir)) {
+      return ImmutableList.of();
+    }
+    Files.walkFileTree(
+        scratchDir,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            Path parent = dir.getParent();
+            if (dir.getFileName().toString().equals("metadata") &&
+                parent != null &&
+                parent.getFileName().toString().startsWith(".")) {
+              metadataDirectories.add(filesystem.getRootPath().relativize(dir));
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return metadataDirectories.build();
+  }
+
+  private ImmutableList<Path> readRecordedPaths(Path metadataDirectory) {
+    Optional<String> contents = filesystem.readFileIfItExists(
+        metadataDirectory.resolve(BuildInfo.MetadataKey.RECORDED_PATHS));
+    if (!contents.isPresent()) {
+      return ImmutableList.of();
+    }
+    try {
+      List<String> paths =
+          objectMapper.readValue(contents.get(), new TypeReference<List<String>>() {});
+      ImmutableList.Builder<Path> recordedPaths = ImmutableList.builder();
+      for (String path : paths) {
+        recordedPaths.add(filesystem.getRootPath().getFileSystem().getPath(path).normalize());
+      }
+      return recordedPaths.build();
+    } catch (IOException e) {
+      LOG.warn(e, "Couldn't read recorded paths in %s.", metadataDirectory);
+      return ImmutableList.of();
+    }
+  }
+
+  /**
+   * Recovers the target from a path of the form {@code bin/<base path>/.<name>/metadata}, as
+   * written by {@link BuildInfo#getPathToMetadataDirectory}.
+   */
+  private Optional<BuildTarget> getTargetForMetadataDirectory(Path metadataDirectory) {
+    Path relative = filesystem.getBuckPaths().getScratchDir()
+        .relativize(metadataDirectory.getParent());
+    String baseName = "//" + (relative.getParent() == null ?
+        "" :
+        MorePaths.pathWithUnixSeparators(relative.getParent()));
+    String nameAndFlavors = relative.getFileName().toString().substring(1);
+    int hash = nameAndFlavors.indexOf('#');
+    try {
+      BuildTarget.Builder builder = BuildTarget.builder(
+          filesystem.getRootPath(),
+          baseName,
+          hash == -1 ? nameAndFlavors : nameAndFlavors.substring(0, hash));
+      if (hash != -1) {
+        for (String flavor : Splitter.on(',').split(nameAndFlavors.substring(hash + 1))) {
+          builder.addFlavors(ImmutableFlavor.of(flavor));
+        }
+      }
+      return Optional.of(builder.build());
+    } catch (IllegalArgumentException e) {
+      LOG.debug(e, "No target for metadata in %s.", metadataDirectory);
+      return Optional.empty();
+    }
+  }
+
+  private boolean moveToTrash(Path path, Path trashDirectory) throws IOException {
+    Path destination = trashDirectory.resolve(path);
+    filesystem.createParentDirs(destination);
+    try {
+      filesystem.move(path, destination, StandardCopyOption.ATOMIC_MOVE);
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (AtomicMoveNotSupportedException e) {
+      LOG.warn(e, "Atomic moves not supported, deleting %s synchronously.", path);
+      MoreFiles.deleteRecursivelyIfExists(filesystem.resolve(path));
+    }
+    return true;
+  }
+
+  private ImmutableList<Path> listDirectory(Path directory) throws IOException {
+    if (!filesystem.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Path> children = ImmutableList.builder();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(filesystem.resolve(directory))) {
+      for (Path entry : entries) {
+        children.add(directory.resolve(entry.getFileName()));
+      }
+    }
+    return children.build();
+  }
+
+  private FileTime getNewestModification(Path path) throws IOException {
+    FileTime[] newest = {FileTime.fromMillis(0)};
+    walk(path, attrs -> {
+      if (attrs.lastModifiedTime().compareTo(newest[0]) > 0) {
+        newest[0] = attrs.lastModifiedTime();
+      }
+    });
+    return newest[0];
+  }
+
+  private long getSize(Path path) throws IOException {
+    long[] size = {0};
+    walk(path, attrs -> {
+      if (!attrs.isDirectory()) {
+        size[0] += attrs.size();
+      }
+    });
+    return size[0];
+  }
+
+  private void walk(Path path, AttributesVisitor visitor) throws IOException {
+    Path absolutePath = filesystem.resolve(path);
+    if (!Files.exists(absolutePath, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    Files.walkFileTree(
+        absolutePath,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            visitor.visit(attrs);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            visitor.visit(attrs);
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private interface AttributesVisitor {
+    void visit(BasicFileAttributes attrs);
+  }
+
+  /**
+   * @return whether {@code path}, or any of its ancestors, is in {@code paths}.
+   */
+  private static boolean isUnder(Path path, Set<Path> paths) {
+    for (Path ancestor = path; ancestor != null; ancestor = ancestor.getParent()) {
+      if (paths.contains(ancestor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void addAncestors(Path path, Set<Path> ancestors) {
+    for (Path parent = path.getParent(); parent != null; parent = parent.getParent()) {
+      ancestors.add(parent);
+    }
+  }
+}
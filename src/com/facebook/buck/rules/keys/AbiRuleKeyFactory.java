@@ -18,10 +18,17 @@ package com.facebook.buck.rules.keys;
 
 import com.facebook.buck.hashing.FileHashLoader;
 import com.facebook.buck.rules.BuildRule;
+import com.facebook.buck.rules.RuleKeyAppendable;
 import com.facebook.buck.rules.RuleKeyObjectSink;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.google.common.base.Preconditions;
 
+/**
+ * A {@link DefaultRuleKeyFactory} which keys rules on the ABI of their deps rather than on the deps'
+ * full rule keys.  Everything else, including the sub-keys of {@link RuleKeyAppendable}s and the
+ * keys of referenced build rules, is taken from the default factory, so values shared by many
+ * rules are only hashed once per build.
+ */
 public class AbiRuleKeyFactory extends DefaultRuleKeyFactory {
 
   private final DefaultRuleKeyFactory defaultRuleKeyFactory;
@@ -25,6 +25,8 @@ import com.facebook.buck.rules.RuleKeyBuilder;
 import com.facebook.buck.rules.RuleKeyFactory;
 import com.facebook.buck.rules.RuleKeyObjectSink;
 import com.facebook.buck.rules.SourcePathResolver;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -37,7 +39,11 @@ import javax.annotation.Nonnull;
 public class DefaultRuleKeyFactory
     extends ReflectiveRuleKeyFactory<RuleKeyBuilder<RuleKey>, RuleKey> {
 
-  protected final LoadingCache<RuleKeyAppendable, RuleKey> ruleKeyCache;
+  /**
+   * Created on first use, since factories which take their sub-keys from another factory (see
+   * {@link #getDefaultRuleKeyFactory()}) never need their own.
+   */
+  private final Supplier<LoadingCache<RuleKeyAppendable, RuleKey>> ruleKeyCache;
   private final FileHashLoader hashLoader;
   private final SourcePathResolver pathResolver;
 
@@ -46,15 +52,16 @@ public class DefaultRuleKeyFactory
       FileHashLoader hashLoader,
       SourcePathResolver pathResolver) {
     super(seed);
-    this.ruleKeyCache = CacheBuilder.newBuilder().weakKeys().build(
-        new CacheLoader<RuleKeyAppendable, RuleKey>() {
-          @Override
-          public RuleKey load(@Nonnull RuleKeyAppendable appendable) throws Exception {
-            RuleKeyBuilder<RuleKey> subKeyBuilder = newBuilder();
-            appendable.appendToRuleKey(subKeyBuilder);
-            return subKeyBuilder.build();
-          }
-        });
+    this.ruleKeyCache = Suppliers.memoize(
+        () -> CacheBuilder.newBuilder().weakKeys().build(
+            new CacheLoader<RuleKeyAppendable, RuleKey>() {
+              @Override
+              public RuleKey load(@Nonnull RuleKeyAppendable appendable) throws Exception {
+                RuleKeyBuilder<RuleKey> subKeyBuilder = newBuilder();
+                appendable.appendToRuleKey(subKeyBuilder);
+                return subKeyBuilder.build();
+              }
+            }));
     this.hashLoader = hashLoader;
     this.pathResolver = pathResolver;
   }
@@ -63,6 +70,13 @@ public class DefaultRuleKeyFactory
     return this;
   }
 
+  /**
+   * @return the memoized sub-key of {@code appendable}.
+   */
+  protected RuleKey getAppendableRuleKey(RuleKeyAppendable appendable) {
+    return ruleKeyCache.get().getUnchecked(appendable);
+  }
+
   private RuleKeyBuilder<RuleKey> newBuilder() {
     return new RuleKeyBuilder<RuleKey>(pathResolver, hashLoader) {
       @Override
@@ -74,7 +88,7 @@ public class DefaultRuleKeyFactory
       public RuleKeyBuilder<RuleKey> setAppendableRuleKey(
           String key,
           RuleKeyAppendable appendable) {
-        RuleKey subKey = ruleKeyCache.getUnchecked(appendable);
+        RuleKey subKey = getDefaultRuleKeyFactory().getAppendableRuleKey(appendable);
         return setAppendableRuleKey(key, subKey);
       }
 
@@ -18,6 +18,7 @@ package com.facebook.buck.rules.keys;
 
 import com.facebook.buck.log.Logger;
 import com.facebook.buck.model.BuckVersion;
+import com.facebook.buck.rules.AddToRuleKey;
 import com.facebook.buck.rules.BuildRule;
 import com.facebook.buck.rules.RuleKeyAppendable;
 import com.facebook.buck.rules.RuleKeyBuilder;
@@ -37,14 +38,18 @@ public abstract class ReflectiveRuleKeyFactory<
 
   private static final Logger LOG = Logger.get(ReflectiveRuleKeyFactory.class);
 
+  /**
+   * The {@link AddToRuleKey} fields of a class never change, so the reflective walk is shared by
+   * every factory instead of being repeated for each flavor of rule key and each new factory.
+   */
+  private static final LoadingCache<Class<? extends BuildRule>, ImmutableCollection<AlterRuleKey>>
+      KNOWN_FIELDS = CacheBuilder.newBuilder().weakKeys().build(new ReflectiveAlterKeyLoader());
+
   private final int seed;
-  private final LoadingCache<Class<? extends BuildRule>, ImmutableCollection<AlterRuleKey>>
-      knownFields;
   private final LoadingCache<BuildRule, RULE_KEY> knownRules;
 
   public ReflectiveRuleKeyFactory(int seed) {
     this.seed = seed;
-    this.knownFields = CacheBuilder.newBuilder().build(new ReflectiveAlterKeyLoader());
     this.knownRules = CacheBuilder.newBuilder().weakKeys().build(
         new CacheLoader<BuildRule, RULE_KEY>() {
           @Override
@@ -83,7 +88,7 @@ public abstract class ReflectiveRuleKeyFactory<
     }
 
     try {
-      for (AlterRuleKey alterRuleKey : knownFields.get(buildRule.getClass())) {
+      for (AlterRuleKey alterRuleKey : KNOWN_FIELDS.get(buildRule.getClass())) {
         alterRuleKey.amendKey(builder, buildRule);
       }
     } catch (ExecutionException | RuntimeException e) {
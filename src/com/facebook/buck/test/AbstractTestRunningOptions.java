@@ -63,6 +63,11 @@ abstract class AbstractTestRunningOptions {
     return false;
   }
 
+  @Value.Default
+  public boolean isFastJvmStartupEnabled() {
+    return false;
+  }
+
   public abstract Optional<String> getPathToXmlTestOutput();
 
   public abstract Optional<String> getPathToJavaAgent();
@@ -24,14 +24,17 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -42,6 +45,17 @@ public class DefaultProcessExecutor implements ProcessExecutor {
 
   private static final Logger LOG = Logger.get(ProcessExecutor.class);
 
+  /**
+   * Drains the stdout and stderr of launched processes. The threads are reused across processes,
+   * so running many short-lived tools doesn't create two new threads for each one. The pool is
+   * unbounded since every running process needs both of its streams drained to make progress.
+   */
+  private static final ExecutorService STREAM_CONSUMER_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder()
+          .setNameFormat("ProcessExecutor (stream consumer) %d")
+          .setDaemon(true)
+          .build());
+
   private final PrintStream stdOutStream;
   private final PrintStream stdErrStream;
   private final Ansi ansi;
@@ -215,28 +229,17 @@ public class DefaultProcessExecutor implements ProcessExecutor {
       final Process process,
       long millis,
       final Optional<Consumer<Process>> timeOutHandler) throws InterruptedException {
-    final AtomicBoolean timedOut = new AtomicBoolean(false);
-    Thread waiter =
-        new Thread(
-            () -> {
-              try {
-                process.waitFor();
-              } catch (InterruptedException e) {
-                timedOut.set(true);
-                if (timeOutHandler.isPresent()) {
-                  try {
-                    timeOutHandler.get().accept(process);
-                  } catch (RuntimeException e2) {
-                    LOG.error(e2, "timeOutHandler threw an Exception!");
-                  }
-                }
-              }
-            });
-    waiter.start();
-    waiter.join(millis);
-    waiter.interrupt();
-    waiter.join();
-    return timedOut.get();
+    if (process.waitFor(millis, TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+    if (timeOutHandler.isPresent()) {
+      try {
+        timeOutHandler.get().accept(process);
+      } catch (RuntimeException e) {
+        LOG.error(e, "timeOutHandler threw an Exception!");
+      }
+    }
+    return true;
   }
 
   /**
@@ -284,17 +287,8 @@ public class DefaultProcessExecutor implements ProcessExecutor {
             ansi));
 
     // Consume the streams so they do not deadlock.
-    FutureTask<Void> stdOutTerminationFuture = new FutureTask<>(stdOut);
-    Thread stdOutConsumer = Threads.namedThread(
-        "ProcessExecutor (stdOut)",
-        stdOutTerminationFuture);
-    stdOutConsumer.start();
-
-    FutureTask<Void> stdErrTerminationFuture = new FutureTask<>(stdErr);
-    Thread stdErrConsumer = Threads.namedThread(
-        "ProcessExecutor (stdErr)",
-        stdErrTerminationFuture);
-    stdErrConsumer.start();
+    Future<Void> stdOutTerminationFuture = STREAM_CONSUMER_EXECUTOR.submit(stdOut);
+    Future<Void> stdErrTerminationFuture = STREAM_CONSUMER_EXECUTOR.submit(stdErr);
 
     boolean timedOut = false;
 
@@ -25,4 +25,10 @@ import org.immutables.value.Value;
 abstract class AbstractListeningSemaphoreArrayPendingItem {
   public abstract SettableFuture<Void> getFuture();
   public abstract ResourceAmounts getResources();
+
+  /**
+   * Position of this item in the overall queue, used to keep acquisition order across items
+   * waiting for different amounts of resources.
+   */
+  public abstract long getSequenceNumber();
 }
@@ -21,9 +21,12 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
 
 /**
  * A semaphore using {@link ListenableFuture}s for acquisition of different resource types
@@ -33,8 +36,16 @@ public class ListeningMultiSemaphore {
 
   private ResourceAmounts usedValues;
   private final ResourceAmounts maximumValues;
-  private final List<ListeningSemaphoreArrayPendingItem> pending = new LinkedList<>();
+  /**
+   * Pending items bucketed by the amounts they requested, each bucket in queue order. Builds only
+   * request a handful of distinct amounts, so on release we look at the head of each bucket rather
+   * than scanning every waiter: if the head of a bucket does not fit, nothing behind it does.
+   */
+  private final Map<ResourceAmounts, Deque<ListeningSemaphoreArrayPendingItem>> pending =
+      new LinkedHashMap<>();
   private final ResourceAllocationFairness fairness;
+  private long nextSequenceNumber = 0;
+  private int pendingCount = 0;
 
   public ListeningMultiSemaphore(
       ResourceAmounts availableResources,
@@ -64,7 +75,9 @@ public class ListeningMultiSemaphore {
     resources = capResourceAmounts(resources);
     if (!checkIfResourcesAvailable(resources)) {
       SettableFuture<Void> pendingFuture = SettableFuture.create();
-      pending.add(ListeningSemaphoreArrayPendingItem.of(pendingFuture, resources));
+      pending.computeIfAbsent(resources, amounts -> new ArrayDeque<>()).add(
+          ListeningSemaphoreArrayPendingItem.of(pendingFuture, resources, nextSequenceNumber++));
+      pendingCount++;
       return pendingFuture;
     }
     increaseUsedResources(resources);
@@ -91,20 +104,50 @@ public class ListeningMultiSemaphore {
   getPendingItemsThatCanBeProcessed() {
     ImmutableList.Builder<ListeningSemaphoreArrayPendingItem> builder = ImmutableList.builder();
 
-    Iterator<ListeningSemaphoreArrayPendingItem> iterator = pending.iterator();
-    while (!getAvailableResources().equals(ResourceAmounts.ZERO) && iterator.hasNext()) {
-      ListeningSemaphoreArrayPendingItem item = iterator.next();
-      if (checkIfResourcesAvailable(item.getResources())) {
-        builder.add(item);
-        increaseUsedResources(item.getResources());
-        iterator.remove();
-      } else if (!fairnessAllowsReordering()) {
+    // Resources only get scarcer as items are granted, so repeatedly granting the oldest item that
+    // fits is the same as a single in-order pass over all waiters.
+    while (pendingCount > 0 && !getAvailableResources().equals(ResourceAmounts.ZERO)) {
+      Deque<ListeningSemaphoreArrayPendingItem> bucket = findNextBucketToProcess();
+      if (bucket == null) {
         break;
       }
+      ListeningSemaphoreArrayPendingItem item = bucket.poll();
+      if (bucket.isEmpty()) {
+        pending.remove(item.getResources());
+      }
+      pendingCount--;
+      builder.add(item);
+      increaseUsedResources(item.getResources());
     }
     return builder.build();
   }
 
+  /**
+   * @return the bucket whose head should be granted next, or null if nothing can be granted.
+   *     With {@link ResourceAllocationFairness#FAIR} only the oldest item overall may be granted;
+   *     otherwise the oldest item which fits is.
+   */
+  @Nullable
+  private synchronized Deque<ListeningSemaphoreArrayPendingItem> findNextBucketToProcess() {
+    Deque<ListeningSemaphoreArrayPendingItem> oldest = null;
+    Deque<ListeningSemaphoreArrayPendingItem> oldestThatFits = null;
+    for (Deque<ListeningSemaphoreArrayPendingItem> bucket : pending.values()) {
+      ListeningSemaphoreArrayPendingItem head = bucket.peek();
+      if (oldest == null || head.getSequenceNumber() < oldest.peek().getSequenceNumber()) {
+        oldest = bucket;
+      }
+      if (checkIfResourcesAvailable(head.getResources()) &&
+          (oldestThatFits == null ||
+              head.getSequenceNumber() < oldestThatFits.peek().getSequenceNumber())) {
+        oldestThatFits = bucket;
+      }
+    }
+    if (!fairnessAllowsReordering() && oldest != oldestThatFits) {
+      return null;
+    }
+    return oldestThatFits;
+  }
+
   public synchronized ResourceAmounts getAvailableResources() {
     return maximumValues.subtract(usedValues);
   }
@@ -114,7 +157,7 @@ public class ListeningMultiSemaphore {
   }
 
   public synchronized int getQueueLength() {
-    return pending.size();
+    return pendingCount;
   }
 
   /**
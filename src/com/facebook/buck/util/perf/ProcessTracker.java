@@ -129,7 +129,7 @@ public class ProcessTracker extends AbstractScheduledService implements AutoClos
     }
   }
 
-  private void refreshProcessesInfo(boolean isTrackerShuttingDown) {
+  private synchronized void refreshProcessesInfo(boolean isTrackerShuttingDown) {
     LOG.verbose("refreshProcessesInfo: processes before: %d", processesInfo.size());
     Iterator<Map.Entry<Long, ProcessInfo>> it;
     for (it = processesInfo.entrySet().iterator(); it.hasNext(); ) {
@@ -168,6 +168,14 @@ public class ProcessTracker extends AbstractScheduledService implements AutoClos
     return Scheduler.newFixedRateSchedule(0L, 1000L, TimeUnit.MILLISECONDS);
   }
 
+  /**
+   * Reports every tracked process that has already finished right away, rather than on the next
+   * periodic probe, so that a command can account for the processes it ran before it returns.
+   */
+  public void flush() {
+    refreshProcessesInfo(/* isShuttingDown */ false);
+  }
+
   @Override
   public void close() {
     processRegistry.unsubscribe(processRegisterCallback);
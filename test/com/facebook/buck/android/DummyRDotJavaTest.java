@@ -93,7 +93,7 @@ public class DummyRDotJavaTest {
     List<Step> steps = dummyRDotJava.getBuildSteps(
         FakeBuildContext.NOOP_CONTEXT,
         buildableContext);
-    assertEquals("DummyRDotJava returns an incorrect number of Steps.", 10, steps.size());
+    assertEquals("DummyRDotJava returns an incorrect number of Steps.", 9, steps.size());
 
     String rDotJavaSrcFolder =
         BuildTargets
@@ -127,7 +127,6 @@ public class DummyRDotJavaTest {
     List<String> expectedStepDescriptions = Lists.newArrayList(
         makeCleanDirDescription(filesystem.resolve(rDotJavaSrcFolder)),
         "android-res-merge " + Joiner.on(' ').join(sortedSymbolsFiles),
-        "android-res-merge " + Joiner.on(' ').join(sortedSymbolsFiles),
         makeCleanDirDescription(filesystem.resolve(rDotJavaBinFolder)),
         makeCleanDirDescription(filesystem.resolve(rDotJavaAbiFolder)),
         makeCleanDirDescription(filesystem.resolve(rDotJavaOutputFolder)),
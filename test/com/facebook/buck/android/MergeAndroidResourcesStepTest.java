@@ -36,6 +36,7 @@ import com.facebook.buck.step.TestExecutionContext;
 import com.facebook.buck.testutil.FakeProjectFilesystem;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Sets;
 import com.google.common.collect.SortedSetMultimap;
 
@@ -203,7 +204,8 @@ public class MergeAndroidResourcesStepTest {
         Paths.get("output"),
         /* forceFinalResourceIds */ false,
         /* unionPackage */ Optional.empty(),
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
 
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
@@ -265,7 +267,8 @@ public class MergeAndroidResourcesStepTest {
         /* forceFinalResourceIds */ true,
         /* bannedDuplicateResourceTypes */ EnumSet.noneOf(RType.class),
         /* unionPackage */ Optional.empty(),
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
 
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
@@ -341,7 +344,8 @@ public class MergeAndroidResourcesStepTest {
         /* forceFinalResourceIds */ true,
         /* bannedDuplicateResourceTypes */ EnumSet.noneOf(RType.class),
         /* unionPackage */ Optional.empty(),
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
 
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
@@ -413,7 +417,8 @@ public class MergeAndroidResourcesStepTest {
         Paths.get("output"),
         /* forceFinalResourceIds */ false,
         Optional.of("res1"),
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
 
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
@@ -458,7 +463,8 @@ public class MergeAndroidResourcesStepTest {
         Paths.get("output"),
         /* forceFinalResourceIds */ false,
         Optional.of("resM"),
-        /* rName */ Optional.empty());
+        /* rName */ Optional.empty(),
+        /* finalRName */ Optional.empty());
 
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
@@ -503,13 +509,69 @@ public class MergeAndroidResourcesStepTest {
         Paths.get("output"),
         /* forceFinalResourceIds */ true,
         Optional.of("res1"),
+        Optional.of("R2"),
+        /* finalRName */ Optional.empty());
+
+    ExecutionContext executionContext = TestExecutionContext.newInstance();
+
+    assertEquals(0, mergeStep.execute(executionContext).getExitCode());
+
+    String resR2Java = filesystem.readFileIfItExists(Paths.get("output/res1/R2.java")).get();
+    assertThat(resR2Java, StringContains.containsString("static final int id1=0x07f01001;"));
+    assertThat(resR2Java, StringContains.containsString("static final int id2=0x07f01002;"));
+  }
+
+  @Test
+  public void testGenerateRDotJavaWithFinalRNameFromOneMerge() throws IOException {
+    BuildTarget res1Target = BuildTargetFactory.newInstance("//:res1");
+    RDotTxtEntryBuilder entriesBuilder = new RDotTxtEntryBuilder();
+    entriesBuilder.add(
+        new RDotTxtFile(
+            "com.res1",
+            BuildTargets.getGenPath(
+                entriesBuilder.getProjectFilesystem(),
+                res1Target,
+                "__%s_text_symbols__/R.txt").toString(),
+            ImmutableList.of("int id id1 0x7f020000", "int id id2 0x7f020002")));
+
+    FakeProjectFilesystem filesystem = entriesBuilder.getProjectFilesystem();
+
+    SourcePathResolver resolver = new SourcePathResolver(
+        new BuildRuleResolver(TargetGraph.EMPTY, new DefaultTargetNodeToBuildRuleTransformer())
+    );
+
+    HasAndroidResourceDeps res1 = AndroidResourceRuleBuilder.newBuilder()
+        .setResolver(resolver)
+        .setBuildTarget(res1Target)
+        .setRes(new FakeSourcePath("res1"))
+        .setRDotJavaPackage("res1")
+        .build();
+
+    MergeAndroidResourcesStep mergeStep = MergeAndroidResourcesStep.createStepForDummyRDotJava(
+        filesystem,
+        resolver,
+        ImmutableList.of(res1),
+        Paths.get("output"),
+        /* forceFinalResourceIds */ false,
+        /* unionPackage */ Optional.empty(),
+        /* rName */ Optional.empty(),
         Optional.of("R2"));
 
+    assertEquals(
+        ImmutableSortedSet.of(Paths.get("output/res1/R.java"), Paths.get("output/res1/R2.java")),
+        mergeStep.getRDotJavaFiles());
+
     ExecutionContext executionContext = TestExecutionContext.newInstance();
 
     assertEquals(0, mergeStep.execute(executionContext).getExitCode());
 
+    String resRJava = filesystem.readFileIfItExists(Paths.get("output/res1/R.java")).get();
+    assertThat(resRJava, StringContains.containsString("public class R {"));
+    assertThat(resRJava, StringContains.containsString("static int id1=0x07f01001;"));
+    assertThat(resRJava, StringContains.containsString("static int id2=0x07f01002;"));
+
     String resR2Java = filesystem.readFileIfItExists(Paths.get("output/res1/R2.java")).get();
+    assertThat(resR2Java, StringContains.containsString("public class R2 {"));
     assertThat(resR2Java, StringContains.containsString("static final int id1=0x07f01001;"));
     assertThat(resR2Java, StringContains.containsString("static final int id2=0x07f01002;"));
   }
@@ -35,6 +35,7 @@ import com.facebook.buck.rules.TargetGraph;
 import com.facebook.buck.testutil.FakeProjectFilesystem;
 import com.facebook.buck.timing.FakeClock;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import org.hamcrest.core.IsEqual;
@@ -45,6 +46,8 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.xpath.XPathExpressionException;
@@ -104,6 +107,39 @@ public class MiniAaptTest {
             new FakeRDotTxtEntry(IdType.INT, RType.ID, "button2")));
   }
 
+  @Test
+  public void testIdsInXmlAreNumberedInDocumentOrder() throws IOException, ResourceParseException {
+    ImmutableList<String> lines = ImmutableList.<String>builder().add(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+        "<LinearLayout android:id=\"@+id/layout\">",
+        "<Button tools:id=\"@+id/second\" android:id=\"@+id/first\" />",
+        "<TextView android:layout_below=\"@id/later\" />",
+        "<TextView android:id=\"@+id/later\" />",
+        "</LinearLayout>")
+        .build();
+    filesystem.writeLinesToPath(lines, Paths.get("resource.xml"));
+
+    MiniAapt aapt = new MiniAapt(
+        resolver,
+        filesystem,
+        new FakeSourcePath(filesystem, "res"),
+        Paths.get("R.txt"),
+        ImmutableSet.of());
+    aapt.processXmlFile(filesystem, Paths.get("resource.xml"), ImmutableSet.builder());
+
+    Map<String, String> ids = new HashMap<>();
+    for (RDotTxtEntry entry : aapt.getResourceCollector().getResources()) {
+      ids.put(entry.name, entry.idValue);
+    }
+    assertEquals(
+        ImmutableMap.of(
+            "layout", "0x7f010001",
+            "first", "0x7f010002",
+            "second", "0x7f010003",
+            "later", "0x7f010004"),
+        ids);
+  }
+
 
   @Test
   public void testParsingFilesUnderValuesDirectory() throws IOException, ResourceParseException {
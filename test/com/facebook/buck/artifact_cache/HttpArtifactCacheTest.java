@@ -33,6 +33,7 @@ import com.facebook.buck.slb.OkHttpResponseWrapper;
 import com.facebook.buck.testutil.FakeProjectFilesystem;
 import com.facebook.buck.timing.IncrementingFakeClock;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -484,6 +485,47 @@ public class HttpArtifactCacheTest {
     cache.close();
   }
 
+  @Test
+  public void fetchesSkippedByTheKeyFilterAreReportedAsMisses() throws Exception {
+    RuleKey storedRuleKey = new RuleKey("00000000000000000000000000000000");
+    RuleKey otherRuleKey = new RuleKey("11111111111111111111111111111111");
+    List<String> requestedPaths = Lists.newArrayList();
+    List<HttpArtifactCacheEvent.Finished> finishedEvents = Lists.newArrayList();
+    argsBuilder
+        .setUseKeyFilter(true)
+        .setBuckEventBus(
+            new BuckEventBus(new IncrementingFakeClock(), new BuildId()) {
+              @Override
+              public void post(BuckEvent event) {
+                if (event instanceof HttpArtifactCacheEvent.Finished) {
+                  finishedEvents.add((HttpArtifactCacheEvent.Finished) event);
+                }
+              }
+            })
+        .setFetchClient(withMakeRequest((path, requestBuilder) -> {
+          requestedPaths.add(path);
+          ByteArrayOutputStream filter = new ByteArrayOutputStream();
+          HttpArtifactCacheBinaryProtocol.writeRuleKeyFilter(
+              ImmutableList.of(storedRuleKey),
+              filter);
+          Response response = new Response.Builder()
+              .request(requestBuilder.url(SERVER + path).build())
+              .protocol(Protocol.HTTP_1_1)
+              .code(HttpURLConnection.HTTP_OK)
+              .body(ResponseBody.create(OCTET_STREAM, filter.toByteArray()))
+              .build();
+          return new OkHttpResponseWrapper(response);
+        }));
+    HttpArtifactCache cache = new HttpArtifactCache(argsBuilder.build());
+
+    CacheResult result = cache.fetch(otherRuleKey, LazyPath.ofInstance(Paths.get("output/file")));
+    assertEquals(CacheResultType.MISS, result.getType());
+    assertEquals(ImmutableList.of("/artifacts/key_filter"), requestedPaths);
+    assertEquals(1, finishedEvents.size());
+    assertEquals(Optional.of(result), finishedEvents.get(0).getCacheResult());
+    cache.close();
+  }
+
   @Test
   public void errorTextReplaced() throws InterruptedException {
     FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
@@ -25,6 +25,7 @@ import com.facebook.buck.event.BuckEventBusFactory;
 import com.facebook.buck.event.listener.BroadcastEventListener;
 import com.facebook.buck.io.ProjectFilesystem;
 import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.ImmutableFlavor;
 import com.facebook.buck.parser.Parser;
 import com.facebook.buck.parser.ParserConfig;
 import com.facebook.buck.parser.PerBuildState;
@@ -147,4 +148,21 @@ public class BuckQueryEnvironmentTest {
         buckQueryEnvironment.getTargetsMatchingPattern("//example:", executor),
         is(equalTo(expectedTargets)));
   }
+
+  @Test
+  public void testFlavoredTargetWhoseBaseIsAlreadyInTheGraph()
+      throws QueryException, InterruptedException {
+    buckQueryEnvironment.evaluateQuery("deps('//example:one')", executor);
+
+    BuildTarget flavored = BuildTarget.builder(cellRoot, "//example", "one")
+        .addFlavors(ImmutableFlavor.of("static"))
+        .build();
+    assertThat(
+        buckQueryEnvironment.evaluateQuery("deps('" + flavored + "', 1)", executor),
+        is(equalTo(
+            ImmutableSet.of(
+                QueryBuildTarget.of(flavored),
+                createQueryBuildTarget("//example", "two"),
+                createQueryBuildTarget("//example", "three")))));
+  }
 }
@@ -18,6 +18,7 @@ package com.facebook.buck.cli;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import com.facebook.buck.android.AndroidPlatformTarget;
 import com.facebook.buck.android.FakeAndroidDirectoryResolver;
@@ -29,8 +30,11 @@ import com.facebook.buck.jvm.java.FakeJavaPackageFinder;
 import com.facebook.buck.jvm.java.intellij.Project;
 import com.facebook.buck.parser.Parser;
 import com.facebook.buck.rules.ActionGraphCache;
+import com.facebook.buck.rules.BuildInfoStoreManager;
+import com.facebook.buck.rules.CachingBuildEngine;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.KnownBuildRuleTypesFactory;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.rules.TestCellBuilder;
 import com.facebook.buck.testutil.FakeProjectFilesystem;
 import com.facebook.buck.testutil.TestConsole;
@@ -58,10 +62,6 @@ public class CleanCommandTest extends EasyMockSupport {
 
   private ProjectFilesystem projectFilesystem;
 
-  // TODO(bolinfest): When it is possible to inject a mock object for stderr,
-  // create a test that runs `buck clean unexpectedarg` and verify that the
-  // exit code is 1 and that the appropriate error message is printed.
-
   @Test
   public void testCleanCommandNoArguments()
       throws CmdLineException, IOException, InterruptedException {
@@ -99,6 +99,25 @@ public class CleanCommandTest extends EasyMockSupport {
     assertFalse(projectFilesystem.exists(projectFilesystem.getBuckPaths().getAnnotationDir()));
   }
 
+  @Test
+  public void testCleanCommandRejectsTargetsWithoutStale()
+      throws CmdLineException, IOException, InterruptedException {
+    CommandRunnerParams params = createCommandRunnerParams();
+
+    projectFilesystem.mkdirs(projectFilesystem.getBuckPaths().getScratchDir());
+    projectFilesystem.mkdirs(projectFilesystem.getBuckPaths().getGenDir());
+    projectFilesystem.mkdirs(projectFilesystem.getBuckPaths().getTrashDir());
+
+    // Simulate `buck clean //foo:bar`.
+    CleanCommand cleanCommand = createCommandFromArgs("//foo:bar");
+    int exitCode = cleanCommand.run(params);
+    assertEquals(1, exitCode);
+
+    assertTrue(projectFilesystem.exists(projectFilesystem.getBuckPaths().getScratchDir()));
+    assertTrue(projectFilesystem.exists(projectFilesystem.getBuckPaths().getGenDir()));
+    assertTrue(projectFilesystem.exists(projectFilesystem.getBuckPaths().getTrashDir()));
+  }
+
   private CleanCommand createCommandFromArgs(String... args) throws CmdLineException {
     CleanCommand command = new CleanCommand();
     new AdditionalOptionsCmdLineParser(command).parseArgument(args);
@@ -129,6 +148,9 @@ public class CleanCommandTest extends EasyMockSupport {
         .setWebServer(Optional.empty())
         .setBuckConfig(FakeBuckConfig.builder().build())
         .setFileHashCache(new NullFileHashCache())
+        .setOnDiskBuildInfoCache(new OnDiskBuildInfoCache())
+        .setBuildInfoStoreManager(
+            new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
         .setExecutors(ImmutableMap.of())
         .setBuildEnvironmentDescription(
             CommandRunnerParamsForTesting.BUILD_ENVIRONMENT_DESCRIPTION)
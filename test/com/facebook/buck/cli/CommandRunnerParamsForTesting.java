@@ -30,9 +30,12 @@ import com.facebook.buck.jvm.java.FakeJavaPackageFinder;
 import com.facebook.buck.parser.Parser;
 import com.facebook.buck.parser.ParserConfig;
 import com.facebook.buck.rules.ActionGraphCache;
+import com.facebook.buck.rules.BuildInfoStoreManager;
+import com.facebook.buck.rules.CachingBuildEngine;
 import com.facebook.buck.rules.Cell;
 import com.facebook.buck.rules.ConstructorArgMarshaller;
 import com.facebook.buck.rules.KnownBuildRuleTypesFactory;
+import com.facebook.buck.rules.OnDiskBuildInfoCache;
 import com.facebook.buck.rules.TestCellBuilder;
 import com.facebook.buck.rules.coercer.DefaultTypeCoercerFactory;
 import com.facebook.buck.step.ExecutorPool;
@@ -112,6 +115,9 @@ public class CommandRunnerParamsForTesting {
         .setWebServer(webServer)
         .setBuckConfig(config)
         .setFileHashCache(new NullFileHashCache())
+        .setOnDiskBuildInfoCache(new OnDiskBuildInfoCache())
+        .setBuildInfoStoreManager(
+            new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
         .setExecutors(
             ImmutableMap.of(
                 ExecutorPool.PROJECT,
@@ -17,6 +17,7 @@
 package com.facebook.buck.cli;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import com.facebook.buck.apple.AppleBinaryBuilder;
 import com.facebook.buck.apple.AppleBundleBuilder;
@@ -29,11 +30,16 @@ import com.facebook.buck.apple.project_generator.ProjectGeneratorTestUtils;
 import com.facebook.buck.model.BuildTarget;
 import com.facebook.buck.model.BuildTargetFactory;
 import com.facebook.buck.model.Either;
+import com.facebook.buck.rules.BuildTargetSourcePath;
 import com.facebook.buck.rules.FakeSourcePath;
+import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraph;
 import com.facebook.buck.rules.TargetGraphAndTargets;
 import com.facebook.buck.rules.TargetNode;
+import com.facebook.buck.shell.GenruleBuilder;
 import com.facebook.buck.testutil.TargetGraphFactory;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 
@@ -393,4 +399,30 @@ public class ProjectCommandXcodeTest {
     ProjectGeneratorTestUtils.assertTargetExists(
         projectGenerators.get(Paths.get("baz")), "xctest");
   }
+
+  @Test
+  public void sourcePathResolverIsSharedBetweenNodes() {
+    BuildTarget genTarget = BuildTargetFactory.newInstance("//gen:gen");
+    TargetNode<?, ?> genNode = GenruleBuilder.newGenruleBuilder(genTarget)
+        .setOut("gen.h")
+        .setCmd("touch $OUT")
+        .build();
+    BuildTarget otherTarget = BuildTargetFactory.newInstance("//gen:other");
+    TargetNode<?, ?> otherNode = GenruleBuilder.newGenruleBuilder(otherTarget)
+        .setOut("other.h")
+        .setSrcs(ImmutableList.of(new BuildTargetSourcePath(genTarget)))
+        .setCmd("cp $SRCS $OUT")
+        .build();
+    Function<TargetNode<?, ?>, SourcePathResolver> sourcePathResolverForNode =
+        ProjectCommand.createSourcePathResolverForNode(
+            TargetGraphFactory.newInstance(genNode, otherNode));
+
+    SourcePathResolver otherResolver = sourcePathResolverForNode.apply(otherNode);
+    assertSame(otherResolver, sourcePathResolverForNode.apply(genNode));
+    assertSame(otherResolver, sourcePathResolverForNode.apply(otherNode));
+    assertEquals(
+        otherResolver.getRelativePath(new BuildTargetSourcePath(genTarget)),
+        sourcePathResolverForNode.apply(genNode)
+            .getRelativePath(new BuildTargetSourcePath(genTarget)));
+  }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.facebook.buck.event.BuckEventBus;
+import com.facebook.buck.event.BuckEventBusFactory;
+import com.facebook.buck.event.ConsoleEvent;
+import com.facebook.buck.rules.CachingBuildEngine;
+import com.facebook.buck.rules.ResourceAwareSchedulingInfo;
+import com.facebook.buck.testutil.FakeProjectFilesystem;
+import com.facebook.buck.timing.FakeClock;
+import com.facebook.buck.util.ObjectMappers;
+import com.facebook.buck.util.ProcessResourceConsumption;
+import com.facebook.buck.util.concurrent.ResourceAmounts;
+import com.facebook.buck.util.perf.ProcessTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.eventbus.Subscribe;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public class ResourceAmountsHistoryTest {
+
+  private static final ResourceAmounts DEFAULT_AMOUNTS = ResourceAmounts.of(1, 1, 0, 0);
+  private static final ResourceAwareSchedulingInfo SCHEDULING_INFO =
+      ResourceAwareSchedulingInfo.of(
+          true,
+          DEFAULT_AMOUNTS,
+          ImmutableMap.of("genrule", ResourceAmounts.of(1, 2, 0, 0)));
+  private static final long GIGABYTE = 1024L * 1024 * 1024;
+  private static final int MAXIMUM_MEMORY_AMOUNT = 20;
+  private static final long TOTAL_MEMORY_BYTES = 20 * GIGABYTE;
+
+  @Test
+  public void observedMemoryIsUsedForUnconfiguredRuleTypesInLaterBuilds() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    ObjectMapper objectMapper = ObjectMappers.newDefaultInstance();
+
+    ResourceAmountsHistory history = ResourceAmountsHistory.load(filesystem, objectMapper);
+    assertEquals(SCHEDULING_INFO, applyTo(history, SCHEDULING_INFO));
+    history.processResourceConsumption(
+        createEvent("cxx_link", 5 * GIGABYTE + 1));
+    history.processResourceConsumption(
+        createEvent("cxx_link", 2 * GIGABYTE));
+    history.processResourceConsumption(
+        createEvent("genrule", 10 * GIGABYTE));
+    history.save();
+
+    ResourceAwareSchedulingInfo info =
+        applyTo(ResourceAmountsHistory.load(filesystem, objectMapper), SCHEDULING_INFO);
+    assertEquals(ResourceAmounts.of(1, 6, 0, 0), info.getAmountsPerRuleType().get("cxx_link"));
+    assertEquals(ResourceAmounts.of(1, 2, 0, 0), info.getAmountsPerRuleType().get("genrule"));
+  }
+
+  @Test
+  public void historyIsIgnoredWhenResourceAwareSchedulingIsDisabled() throws IOException {
+    ResourceAmountsHistory history = ResourceAmountsHistory.load(
+        new FakeProjectFilesystem(),
+        ObjectMappers.newDefaultInstance());
+    history.processResourceConsumption(
+        createEvent("cxx_link", 5 * GIGABYTE));
+    history.save();
+
+    assertSame(
+        ResourceAwareSchedulingInfo.NON_AWARE_SCHEDULING_INFO,
+        applyTo(history, ResourceAwareSchedulingInfo.NON_AWARE_SCHEDULING_INFO));
+  }
+
+  @Test
+  public void peaksAreMeasuredAgainstPhysicalMemoryRatherThanTheHeap() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    ObjectMapper objectMapper = ObjectMappers.newDefaultInstance();
+
+    ResourceAmountsHistory history = ResourceAmountsHistory.load(filesystem, objectMapper);
+    // Far more than a 2GB heap worth of memory units, but only a quarter of the machine.
+    history.processResourceConsumption(createEvent("cxx_link", 4 * GIGABYTE));
+    history.processResourceConsumption(createEvent("swift_compile", 32 * GIGABYTE));
+    history.save();
+
+    ResourceAwareSchedulingInfo info =
+        ResourceAmountsHistory.load(filesystem, objectMapper).applyTo(
+            SCHEDULING_INFO,
+            MAXIMUM_MEMORY_AMOUNT,
+            16 * GIGABYTE);
+    assertEquals(ResourceAmounts.of(1, 5, 0, 0), info.getAmountsPerRuleType().get("cxx_link"));
+    assertEquals(
+        ResourceAmounts.of(1, MAXIMUM_MEMORY_AMOUNT, 0, 0),
+        info.getAmountsPerRuleType().get("swift_compile"));
+  }
+
+  @Test
+  public void processesReportedAfterTheBuildFinishedAreStillLearned() throws Exception {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    ObjectMapper objectMapper = ObjectMappers.newDefaultInstance();
+    BuckEventBus eventBus = new BuckEventBus(
+        new FakeClock(0),
+        /* async */ true,
+        BuckEventBusFactory.BUILD_ID_FOR_TEST,
+        BuckEventBus.DEFAULT_SHUTDOWN_TIMEOUT_MS);
+    // Keep the bus busy, so that the final link's report is still queued when the build ends.
+    eventBus.register(
+        new Object() {
+          @Subscribe
+          public void slowListener(ConsoleEvent event) throws InterruptedException {
+            Thread.sleep(200);
+          }
+        });
+
+    ResourceAmountsHistory history = ResourceAmountsHistory.load(filesystem, objectMapper);
+    history.startRecording(eventBus);
+    eventBus.post(ConsoleEvent.info("build finished"));
+    eventBus.post(createEvent("cxx_link", 5 * GIGABYTE));
+    history.stopRecordingAndSave(eventBus, Optional.empty());
+
+    // Reports delivered after the history was saved are no longer recorded.
+    eventBus.post(createEvent("swift_compile", 10 * GIGABYTE));
+    eventBus.close();
+
+    ResourceAwareSchedulingInfo info =
+        applyTo(ResourceAmountsHistory.load(filesystem, objectMapper), SCHEDULING_INFO);
+    assertEquals(ResourceAmounts.of(1, 5, 0, 0), info.getAmountsPerRuleType().get("cxx_link"));
+    assertNull(info.getAmountsPerRuleType().get("swift_compile"));
+  }
+
+  private static ResourceAwareSchedulingInfo applyTo(
+      ResourceAmountsHistory history,
+      ResourceAwareSchedulingInfo info) {
+    return history.applyTo(info, MAXIMUM_MEMORY_AMOUNT, TOTAL_MEMORY_BYTES);
+  }
+
+  private static ProcessTracker.ProcessResourceConsumptionEvent createEvent(
+      String ruleType,
+      long memResident) {
+    return new ProcessTracker.ProcessResourceConsumptionEvent(
+        "ld",
+        Optional.empty(),
+        Optional.of(ImmutableMap.of(CachingBuildEngine.BUILD_RULE_TYPE_CONTEXT_KEY, ruleType)),
+        Optional.of(
+            ProcessResourceConsumption.builder()
+                .setMemResident(memResident)
+                .setMemSize(memResident)
+                .setCpuReal(0)
+                .setCpuUser(0)
+                .setCpuSys(0)
+                .setCpuTotal(0)
+                .setIoBytesRead(0)
+                .setIoBytesWritten(0)
+                .setIoTotal(0)
+                .build()));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.BuildTargetFactory;
+import com.facebook.buck.test.TestCaseSummary;
+import com.facebook.buck.test.TestResultSummary;
+import com.facebook.buck.test.TestResults;
+import com.facebook.buck.test.result.type.ResultType;
+import com.facebook.buck.testutil.FakeProjectFilesystem;
+import com.facebook.buck.util.ObjectMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class TestDurationsTest {
+
+  private static final BuildTarget FAST = BuildTargetFactory.newInstance("//:fast");
+  private static final BuildTarget SLOW = BuildTargetFactory.newInstance("//:slow");
+  private static final BuildTarget NEW = BuildTargetFactory.newInstance("//:new");
+
+  @Test
+  public void durationsSurviveRoundTripThroughBuckOut() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    ObjectMapper objectMapper = ObjectMappers.newDefaultInstance();
+
+    TestDurations durations = TestDurations.load(filesystem, objectMapper);
+    assertEquals(Optional.empty(), durations.getDurationMillis(SLOW));
+    durations.record(createResults(SLOW, 300L, 200L));
+    durations.save();
+
+    TestDurations reloaded = TestDurations.load(filesystem, objectMapper);
+    assertEquals(Optional.of(500L), reloaded.getDurationMillis(SLOW));
+  }
+
+  @Test
+  public void unreadableFileIsTreatedAsNoHistory() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    filesystem.writeContentsToPath(
+        "not json",
+        filesystem.getBuckPaths().getBuckOut().resolve(TestDurations.DURATIONS_FILE));
+
+    TestDurations durations = TestDurations.load(filesystem, ObjectMappers.newDefaultInstance());
+    assertEquals(Optional.empty(), durations.getDurationMillis(SLOW));
+  }
+
+  @Test
+  public void longestFirstPutsUnknownTestsFirstThenSlowestTests() {
+    TestDurations durations =
+        TestDurations.load(new FakeProjectFilesystem(), ObjectMappers.newDefaultInstance());
+    durations.record(createResults(FAST, 10L));
+    durations.record(createResults(SLOW, 1000L));
+
+    List<BuildTarget> targets = ImmutableList.of(FAST, SLOW, NEW);
+    List<BuildTarget> ordered = new ArrayList<>(targets);
+    ordered.sort(durations.longestFirst());
+    assertEquals(ImmutableList.of(NEW, SLOW, FAST), ordered);
+  }
+
+  @Test
+  public void failingRunOnlyRaisesTheRecordedDuration() {
+    TestDurations durations =
+        TestDurations.load(new FakeProjectFilesystem(), ObjectMappers.newDefaultInstance());
+    durations.record(createResults(SLOW, 1000L));
+
+    durations.record(createResults(SLOW, ResultType.FAILURE, 10L));
+    assertEquals(Optional.of(1000L), durations.getDurationMillis(SLOW));
+
+    durations.record(createResults(SLOW, ResultType.FAILURE, 2000L));
+    assertEquals(Optional.of(2000L), durations.getDurationMillis(SLOW));
+
+    durations.record(createResults(SLOW, 800L));
+    assertEquals(Optional.of(800L), durations.getDurationMillis(SLOW));
+  }
+
+  private static TestResults createResults(BuildTarget target, long... times) {
+    return createResults(target, ResultType.SUCCESS, times);
+  }
+
+  private static TestResults createResults(
+      BuildTarget target,
+      ResultType resultType,
+      long... times) {
+    ImmutableList.Builder<TestCaseSummary> testCases = ImmutableList.builder();
+    for (long time : times) {
+      testCases.add(
+          new TestCaseSummary(
+              "TestClass" + time,
+              ImmutableList.of(
+                  new TestResultSummary(
+                      "TestClass" + time,
+                      "testMethod",
+                      resultType,
+                      time,
+                      null,
+                      null,
+                      null,
+                      null))));
+    }
+    return TestResults.of(target, testCases.build(), ImmutableSet.of(), ImmutableSet.of());
+  }
+}
@@ -37,6 +37,7 @@ import com.facebook.buck.rules.DefaultCellPathResolver;
 import com.facebook.buck.rules.DefaultTargetNodeToBuildRuleTransformer;
 import com.facebook.buck.rules.FakeBuildRuleParamsBuilder;
 import com.facebook.buck.rules.FakeSourcePath;
+import com.facebook.buck.rules.PathSourcePath;
 import com.facebook.buck.rules.SourcePath;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraph;
@@ -317,6 +318,185 @@ public class PrecompiledHeaderFeatureTest {
           pch1, pch2);
     }
 
+    @Test
+    public void ensureSameObjForPlainPrefixHeaderIfSameFlags() {
+      // Scenario: foo, bar are "cxx_binary" rules which both have "prefix_header" set to the plain
+      // source file "baz/bazheader.h" (rather than to a build target exporting it).
+      //
+      // As with exported headers, a single PCH should be shared between the two "clients".
+
+      final BuildRuleResolver ruleResolver =
+          new BuildRuleResolver(TargetGraph.EMPTY, new DefaultTargetNodeToBuildRuleTransformer());
+
+      CxxSourceRuleFactory factoryFoo =
+          preconfiguredSourceRuleFactoryBuilder("//foo:foo_binary", ruleResolver)
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleFoo =
+          factoryFoo.createPreprocessAndCompileBuildRule(
+              "foo.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch1 =
+          FluentIterable.from(ruleFoo.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      CxxSourceRuleFactory factoryBar =
+          preconfiguredSourceRuleFactoryBuilder("//bar:bar_binary", ruleResolver)
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleBar =
+          factoryBar.createPreprocessAndCompileBuildRule(
+              "bar.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch2 =
+          FluentIterable.from(ruleBar.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      assertSame(
+          "PCH's for the same plain prefix header with same flags should be the same object.",
+          pch1, pch2);
+      assertEquals(
+          "//baz:bazheader.h",
+          pch1.getBuildTarget().getUnflavoredBuildTarget().getFullyQualifiedName());
+    }
+
+    @Test
+    public void ensureDiffObjForPlainPrefixHeaderIfDiffFlagsOrIncludes() {
+      // Scenario: foo, bar, qux are "cxx_binary" rules which all have "prefix_header" set to the
+      // plain source file "baz/bazheader.h".  bar differs from foo in its preprocessor flags, and
+      // qux in its include paths.
+      //
+      // A PCH built for one of them must not be handed to another, so each gets its own.
+
+      final BuildRuleResolver ruleResolver =
+          new BuildRuleResolver(TargetGraph.EMPTY, new DefaultTargetNodeToBuildRuleTransformer());
+      final ProjectFilesystem fs = new FakeProjectFilesystem();
+
+      CxxSourceRuleFactory factoryFoo =
+          preconfiguredSourceRuleFactoryBuilder("//foo:foo_binary", ruleResolver)
+              .setCxxPreprocessorInput(
+                  ImmutableList.of(
+                      CxxPreprocessorInput.builder()
+                          .setPreprocessorFlags(
+                              ImmutableMultimap.of(CxxSource.Type.C, "-DNDEBUG"))
+                          .addIncludes(
+                              CxxHeadersDir.of(
+                                  CxxPreprocessables.IncludeType.LOCAL,
+                                  new PathSourcePath(fs, Paths.get("foo/include"))))
+                          .build()))
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleFoo =
+          factoryFoo.createPreprocessAndCompileBuildRule(
+              "foo.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch1 =
+          FluentIterable.from(ruleFoo.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      CxxSourceRuleFactory factoryBar =
+          preconfiguredSourceRuleFactoryBuilder("//bar:bar_binary", ruleResolver)
+              .setCxxPreprocessorInput(
+                  ImmutableList.of(
+                      CxxPreprocessorInput.builder()
+                          .setPreprocessorFlags(
+                              ImmutableMultimap.of(CxxSource.Type.C, "-UNDEBUG"))
+                          .addIncludes(
+                              CxxHeadersDir.of(
+                                  CxxPreprocessables.IncludeType.LOCAL,
+                                  new PathSourcePath(fs, Paths.get("foo/include"))))
+                          .build()))
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleBar =
+          factoryBar.createPreprocessAndCompileBuildRule(
+              "bar.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch2 =
+          FluentIterable.from(ruleBar.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      CxxSourceRuleFactory factoryQux =
+          preconfiguredSourceRuleFactoryBuilder("//qux:qux_binary", ruleResolver)
+              .setCxxPreprocessorInput(
+                  ImmutableList.of(
+                      CxxPreprocessorInput.builder()
+                          .setPreprocessorFlags(
+                              ImmutableMultimap.of(CxxSource.Type.C, "-DNDEBUG"))
+                          .addIncludes(
+                              CxxHeadersDir.of(
+                                  CxxPreprocessables.IncludeType.LOCAL,
+                                  new PathSourcePath(fs, Paths.get("qux/include"))))
+                          .build()))
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleQux =
+          factoryQux.createPreprocessAndCompileBuildRule(
+              "qux.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch3 =
+          FluentIterable.from(ruleQux.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      assertNotEquals(
+          "PCH's for a plain prefix header with different flags should be distinct.",
+          pch1.getBuildTarget(), pch2.getBuildTarget());
+      assertNotEquals(
+          "PCH's for a plain prefix header with different include paths should be distinct.",
+          pch1.getBuildTarget(), pch3.getBuildTarget());
+    }
+
+    @Test
+    public void ensurePlainPrefixHeaderDoesNotCollideWithRuleOfSameName() {
+      // Scenario: "//baz:bazheader.h" is a real "export_file" rule, used as "prefix_header" by foo.
+      // bar instead uses the plain source file "baz/bazheader.h", whose shared PCH is derived from
+      // that very same name.
+      //
+      // The two PCH's must still be told apart in the build graph.
+
+      final Config config = new Config();
+      final ProjectFilesystem fs = new FakeProjectFilesystem();
+      final CellPathResolver cellResolver = new DefaultCellPathResolver(fs.getRootPath(), config);
+      final TargetGraph graph = TargetGraphFactory.newInstance();
+      final BuildRuleResolver ruleResolver =
+          new BuildRuleResolver(graph, new DefaultTargetNodeToBuildRuleTransformer());
+
+      BuildTarget targetBaz = BuildTargetFactory.newInstance("//baz:bazheader.h");
+      BuildRuleParams paramsBaz =
+          new BuildRuleParams(
+              targetBaz,
+              Suppliers.ofInstance(ImmutableSortedSet.<BuildRule>of()),
+              Suppliers.ofInstance(ImmutableSortedSet.<BuildRule>of()),
+              fs,
+              cellResolver);
+
+      ExportFileDescription descriptionBaz = new ExportFileDescription();
+      ExportFileDescription.Arg bazArgs = descriptionBaz.createUnpopulatedConstructorArg();
+      bazArgs.src = Optional.of(new FakeSourcePath("baz/bazheader.h"));
+      bazArgs.out = Optional.empty();
+      bazArgs.mode = Optional.of(ExportFileDescription.Mode.REFERENCE);
+      ruleResolver.addToIndex(
+          new ExportFileDescription()
+          .createBuildRule(graph, paramsBaz, ruleResolver, bazArgs));
+
+      CxxSourceRuleFactory factoryFoo =
+          preconfiguredSourceRuleFactoryBuilder("//foo:foo_binary", ruleResolver)
+              .setPrefixHeader(new BuildTargetSourcePath(targetBaz))
+              .build();
+      CxxPreprocessAndCompile ruleFoo =
+          factoryFoo.createPreprocessAndCompileBuildRule(
+              "foo.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch1 =
+          FluentIterable.from(ruleFoo.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      CxxSourceRuleFactory factoryBar =
+          preconfiguredSourceRuleFactoryBuilder("//bar:bar_binary", ruleResolver)
+              .setPrefixHeader(new FakeSourcePath("baz/bazheader.h"))
+              .build();
+      CxxPreprocessAndCompile ruleBar =
+          factoryBar.createPreprocessAndCompileBuildRule(
+              "bar.cpp", preconfiguredCxxSourceBuilder().build(), CxxPreprocessMode.COMBINED);
+      CxxPrecompiledHeader pch2 =
+          FluentIterable.from(ruleBar.getDeps()).filter(CxxPrecompiledHeader.class).first().get();
+
+      assertEquals(
+          pch1.getBuildTarget().getUnflavoredBuildTarget(),
+          pch2.getBuildTarget().getUnflavoredBuildTarget());
+      assertNotEquals(
+          "The shared PCH of a plain prefix header should not reuse a real rule's PCH target.",
+          pch1.getBuildTarget(), pch2.getBuildTarget());
+    }
+
     @Test
     public void ensureDiffObjIfDiffFlags() {
       // Scenario: three rules:
@@ -16,6 +16,7 @@
 
 package com.facebook.buck.event.listener;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -76,9 +77,13 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -593,4 +598,51 @@ public class ChromeTraceBuildListenerTest {
     List<?> elements = new Gson().fromJson(reader, List.class);
     assertThat(elements, notNullValue());
   }
+
+  @Test
+  public void commandBoundariesAreFlushedBeforeTheTraceIsComplete() throws Exception {
+    ProjectFilesystem projectFilesystem = new ProjectFilesystem(tmpDir.getRoot().toPath());
+
+    ChromeTraceBuildListener listener = new ChromeTraceBuildListener(
+        projectFilesystem,
+        invocationInfo,
+        new FakeClock(TIMESTAMP_NANOS),
+        ObjectMappers.newDefaultInstance(),
+        Locale.US,
+        TimeZone.getTimeZone("America/Los_Angeles"),
+        /* tracesToKeep */ 1,
+        true);
+    BuckEventBus eventBus = BuckEventBusFactory.newInstance(
+        new IncrementingFakeClock(TimeUnit.MILLISECONDS.toNanos(1)),
+        invocationInfo.getBuildId());
+    eventBus.register(listener);
+    eventBus.post(
+        CommandEvent.started("party", ImmutableList.of("arg1"), /* isDaemon */ false));
+
+    // Without outputTrace(), as if the build had been killed at this point.
+    Path tracePath = Paths.get(EXPECTED_DIR + "build.2014-09-02.16-55-51.BUILD_ID.trace.gz");
+    String contents = "";
+    for (int i = 0; i < 100 && !contents.contains("party"); i++) {
+      Thread.sleep(50);
+      contents = readTruncatedGzip(projectFilesystem, tracePath);
+    }
+    assertThat(contents, containsString("\"name\":\"party\""));
+
+    listener.outputTrace(invocationInfo.getBuildId());
+  }
+
+  private static String readTruncatedGzip(
+      ProjectFilesystem projectFilesystem,
+      Path path) throws IOException {
+    ByteArrayOutputStream contents = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(projectFilesystem.newFileInputStream(path))) {
+      int b;
+      while ((b = in.read()) != -1) {
+        contents.write(b);
+      }
+    } catch (EOFException e) {
+      // The gzip trailer is only written once the trace is closed.
+    }
+    return new String(contents.toByteArray(), StandardCharsets.UTF_8);
+  }
 }
@@ -42,7 +42,9 @@ import com.facebook.buck.util.environment.Architecture;
 import com.facebook.buck.util.environment.Platform;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -59,6 +61,8 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
@@ -159,6 +163,60 @@ public class ServedCacheIntegrationTest {
         Matchers.equalTo(A_FILE_DATA));
   }
 
+  @Test
+  public void testFetchLargeArtifactFromServedDircache() throws Exception {
+    // Larger than Jetty's output buffer, so the response is committed while streaming the payload.
+    String largeData = Strings.repeat("0123456789abcdef", 64 * 1024);
+    RuleKey largeRuleKey = new RuleKey("abcdef0123");
+    Path largeFile = Paths.get("largeFile");
+    projectFilesystem.writeContentsToPath(largeData, largeFile);
+    dirCache.store(
+        ArtifactInfo.builder().addRuleKeys(largeRuleKey).setMetadata(A_FILE_METADATA).build(),
+        BorrowablePath.notBorrowablePath(largeFile));
+
+    webServer = new WebServer(
+        /* port */ 0,
+        projectFilesystem,
+        "/static/",
+        MAPPER);
+    webServer.updateAndStartIfNeeded(Optional.of(dirCache));
+
+    ArtifactCache serverBackedCache = ArtifactCaches.newInstance(
+        createMockLocalHttpCacheConfig(webServer.getPort().get()),
+        buckEventBus,
+        projectFilesystem,
+        Optional.empty(),
+        DIRECT_EXECUTOR_SERVICE);
+
+    Path fetchedContents = tmpDir.newFile();
+    CacheResult cacheResult = serverBackedCache.fetch(
+        largeRuleKey,
+        LazyPath.ofInstance(fetchedContents));
+    assertThat(cacheResult.getType().isSuccess(), Matchers.is(true));
+    assertThat(
+        projectFilesystem.readFileIfItExists(fetchedContents).get(),
+        Matchers.equalTo(largeData));
+
+    // The length must be sent up front rather than the body falling back to chunked encoding.
+    HttpURLConnection connection = (HttpURLConnection) new URL(
+        "http://localhost:" + webServer.getPort().get() + "/artifacts/key/" + largeRuleKey)
+        .openConnection();
+    try {
+      assertThat(connection.getResponseCode(), Matchers.equalTo(HttpURLConnection.HTTP_OK));
+      assertThat(connection.getHeaderField("Transfer-Encoding"), Matchers.nullValue());
+      assertThat(
+          connection.getContentLengthLong(),
+          Matchers.greaterThan((long) largeData.length()));
+      try (InputStream body = connection.getInputStream()) {
+        assertThat(
+            (long) ByteStreams.toByteArray(body).length,
+            Matchers.equalTo(connection.getContentLengthLong()));
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
   private static class ThrowAfterXBytesStream extends FilterInputStream {
     private final long bytesToThrowAfter;
     private long bytesRead = 0L;
@@ -597,6 +655,67 @@ public class ServedCacheIntegrationTest {
     assertTrue(containsKey(serverBackedDirCache, ruleKey));
   }
 
+  @Test
+  public void keysMissingFromTheKeyFilterAreNotFetched() throws Exception {
+    webServer = new WebServer(
+        /* port */ 0,
+        projectFilesystem,
+        "/static/",
+        MAPPER);
+    webServer.updateAndStartIfNeeded(ArtifactCaches.newServedCache(
+        createMockLocalConfig(
+            "[cache]",
+            "dir = test-cache",
+            "serve_local_cache = true"),
+        projectFilesystem));
+    waitForKeyFilter(webServer.getPort().get());
+
+    ArtifactCache serverBackedCache = ArtifactCaches.newInstance(
+        createMockLocalConfig(
+            "[cache]",
+            "mode = http",
+            "http_key_filter = true",
+            String.format("http_url = http://127.0.0.1:%d/", webServer.getPort().get())),
+        buckEventBus,
+        projectFilesystem,
+        Optional.empty(),
+        DIRECT_EXECUTOR_SERVICE);
+
+    LazyPath fetchedContents = LazyPath.ofInstance(tmpDir.newFile());
+    assertThat(
+        serverBackedCache.fetch(A_FILE_RULE_KEY, fetchedContents).getType(),
+        Matchers.equalTo(CacheResultType.HIT));
+
+    // With nothing served, any request that still reaches the server is an error.
+    webServer.updateAndStartIfNeeded(Optional.empty());
+    assertThat(
+        serverBackedCache.fetch(A_FILE_RULE_KEY, fetchedContents).getType(),
+        Matchers.equalTo(CacheResultType.ERROR));
+    assertThat(
+        serverBackedCache.fetch(new RuleKey("baadbeef"), fetchedContents).getType(),
+        Matchers.equalTo(CacheResultType.MISS));
+  }
+
+  /**
+   * The key filter is built in the background once a cache is served, so wait for it to be
+   * published.
+   */
+  private static void waitForKeyFilter(int port) throws Exception {
+    URL url = new URL(String.format("http://127.0.0.1:%d/artifacts/key_filter", port));
+    for (int attempt = 0; attempt < 100; attempt++) {
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      try {
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+          return;
+        }
+      } finally {
+        connection.disconnect();
+      }
+      Thread.sleep(100);
+    }
+    throw new AssertionError("The key filter was never published.");
+  }
+
   private boolean containsKey(ArtifactCache cache, RuleKey ruleKey) throws Exception {
     Path fetchedContents = tmpDir.newFile();
     CacheResult cacheResult = cache.fetch(
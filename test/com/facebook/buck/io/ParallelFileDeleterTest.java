@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.buck.testutil.integration.TemporaryPaths;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+
+public class ParallelFileDeleterTest {
+
+  @Rule
+  public TemporaryPaths tmp = new TemporaryPaths();
+
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void deletesTreesAndCountsBytes() throws Exception {
+    Path root = tmp.newFolder("root");
+    for (int i = 0; i < 10; i++) {
+      Path dir = root.resolve("dir" + i).resolve("nested");
+      Files.createDirectories(dir);
+      Files.write(dir.resolve("file"), "hello".getBytes(UTF_8));
+    }
+    Path file = tmp.newFile("file");
+    Files.write(file, "world!".getBytes(UTF_8));
+
+    long bytesDeleted = new ParallelFileDeleter(executor).deleteRecursively(
+        ImmutableList.of(root, file, tmp.getRoot().resolve("missing")));
+
+    assertEquals(10 * 5 + 6, bytesDeleted);
+    assertFalse(Files.exists(root));
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void doesNotFollowSymlinks() throws Exception {
+    Path target = tmp.newFolder("target");
+    Files.write(target.resolve("file"), "hello".getBytes(UTF_8));
+    Path root = tmp.newFolder("root");
+    Files.createSymbolicLink(root.resolve("link"), target);
+
+    new ParallelFileDeleter(executor).deleteRecursively(ImmutableList.of(root));
+
+    assertFalse(Files.exists(root));
+    assertTrue(Files.exists(target.resolve("file")));
+  }
+}
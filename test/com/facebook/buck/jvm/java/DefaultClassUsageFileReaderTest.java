@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.jvm.java;
+
+import static org.junit.Assert.assertEquals;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.BuildTargetFactory;
+import com.facebook.buck.rules.ArchiveMemberSourcePath;
+import com.facebook.buck.rules.BuildRule;
+import com.facebook.buck.rules.BuildRuleResolver;
+import com.facebook.buck.rules.BuildTargetSourcePath;
+import com.facebook.buck.rules.DefaultTargetNodeToBuildRuleTransformer;
+import com.facebook.buck.rules.SourcePath;
+import com.facebook.buck.rules.SourcePathResolver;
+import com.facebook.buck.rules.TargetGraph;
+import com.facebook.buck.testutil.integration.TemporaryPaths;
+import com.facebook.buck.util.HumanReadableException;
+import com.facebook.buck.util.ObjectMappers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public class DefaultClassUsageFileReaderTest {
+
+  @Rule
+  public TemporaryPaths tmp = new TemporaryPaths();
+
+  @Test
+  public void classesFromDepsAreMappedToAbiJarMembers() throws IOException {
+    ProjectFilesystem filesystem = new ProjectFilesystem(tmp.getRoot());
+    SourcePathResolver resolver = new SourcePathResolver(
+        new BuildRuleResolver(TargetGraph.EMPTY, new DefaultTargetNodeToBuildRuleTransformer()));
+    BuildTarget abiTarget = BuildTargetFactory.newInstance("//:dep#abi");
+    BuildRule dep = new FakeJavaLibrary(
+        BuildTargetFactory.newInstance("//:dep"),
+        resolver,
+        filesystem,
+        ImmutableSortedSet.of()) {
+      @Override
+      public Optional<BuildTarget> getAbiJar() {
+        return Optional.of(abiTarget);
+      }
+    };
+
+    Path usedClasses = Paths.get("used-classes.json");
+    filesystem.writeContentsToPath(
+        ObjectMappers.newDefaultInstance().writeValueAsString(
+            ImmutableMap.of(
+                "/jdk/rt.jar", ImmutableList.of("java/lang/String.class"),
+                dep.getPathToOutput().toString(),
+                ImmutableList.of("com/example/A.class", "com/example/B.class"))),
+        usedClasses);
+
+    ImmutableList<SourcePath> inputs = DefaultClassUsageFileReader.loadFromFile(
+        filesystem,
+        filesystem.resolve(usedClasses),
+        ImmutableSortedSet.of(dep));
+
+    BuildTargetSourcePath abiJar = new BuildTargetSourcePath(abiTarget);
+    assertEquals(
+        ImmutableList.of(
+            new ArchiveMemberSourcePath(abiJar, Paths.get("com/example/A.class")),
+            new ArchiveMemberSourcePath(abiJar, Paths.get("com/example/B.class"))),
+        inputs);
+  }
+
+  @Test(expected = HumanReadableException.class)
+  public void malformedFileIsReported() throws IOException {
+    ProjectFilesystem filesystem = new ProjectFilesystem(tmp.getRoot());
+    Path usedClasses = Paths.get("used-classes.json");
+    filesystem.writeContentsToPath("{\"a.jar\": \"not-a-list\"}", usedClasses);
+
+    DefaultClassUsageFileReader.loadFromFile(
+        filesystem,
+        filesystem.resolve(usedClasses),
+        ImmutableSortedSet.of());
+  }
+}
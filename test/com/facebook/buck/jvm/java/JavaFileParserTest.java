@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class JavaFileParserTest {
 
@@ -145,6 +146,25 @@ public class JavaFileParserTest {
   private static final String JAVA_CODE_WITH_ANNOTATION_TYPE =
       "public @interface ExampleAnnotationType { }";
 
+  @Test
+  public void testGetPackageNameFromSource() {
+    JavaFileParser parser = JavaFileParser.createJavaFileParser(DEFAULT_JAVAC_OPTIONS);
+
+    assertEquals(
+        Optional.of("com.example"),
+        parser.getPackageNameFromSource(JAVA_CODE_WITH_MANY_CLASSES));
+    assertEquals(
+        Optional.of("com.example"),
+        parser.getPackageNameFromSource(
+            "// Copyright\r/* header */\npackage com /* inline */ . example;\nclass A {}"));
+    assertEquals(
+        Optional.empty(),
+        parser.getPackageNameFromSource("import java.util.List;\nclass A { List a; }"));
+    assertEquals(
+        Optional.of("com.example"),
+        parser.getPackageNameFromSource("@Deprecated\npackage com.example;"));
+  }
+
   @Test
   public void testJavaFileParsingWithAnnotationType() throws IOException {
     JavaFileParser parser = JavaFileParser.createJavaFileParser(DEFAULT_JAVAC_OPTIONS);
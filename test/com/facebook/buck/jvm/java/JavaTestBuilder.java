@@ -19,6 +19,7 @@ package com.facebook.buck.jvm.java;
 import static com.facebook.buck.jvm.java.JavaCompilationConstants.DEFAULT_JAVAC_OPTIONS;
 import static com.facebook.buck.jvm.java.JavaCompilationConstants.DEFAULT_JAVA_OPTIONS;
 
+import com.facebook.buck.cxx.CxxPlatformUtils;
 import com.facebook.buck.model.BuildTarget;
 import com.facebook.buck.rules.AbstractNodeBuilder;
 import com.facebook.buck.rules.PathSourcePath;
@@ -38,7 +39,7 @@ public class JavaTestBuilder
             DEFAULT_JAVA_OPTIONS,
             DEFAULT_JAVAC_OPTIONS,
             /* testRuleTimeoutMs */ Optional.empty(),
-            null),
+            CxxPlatformUtils.DEFAULT_PLATFORM),
         target);
   }
 
@@ -61,6 +62,11 @@ public class JavaTestBuilder
     return this;
   }
 
+  public JavaTestBuilder setUseCxxLibraries(boolean useCxxLibraries) {
+    arg.useCxxLibraries = Optional.of(useCxxLibraries);
+    return this;
+  }
+
   public JavaTestBuilder setVmArgs(@Nullable ImmutableList<String> vmArgs) {
     arg.vmArgs = Optional.ofNullable(vmArgs).orElse(ImmutableList.of());
     return this;
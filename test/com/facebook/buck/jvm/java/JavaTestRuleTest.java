@@ -17,7 +17,9 @@
 package com.facebook.buck.jvm.java;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import com.facebook.buck.model.BuildTargetFactory;
 import com.facebook.buck.parser.NoSuchBuildTargetException;
@@ -26,6 +28,7 @@ import com.facebook.buck.rules.DefaultTargetNodeToBuildRuleTransformer;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraph;
 import com.facebook.buck.step.TargetDevice;
+import com.facebook.buck.test.TestRunningOptions;
 import com.facebook.buck.testutil.MoreAsserts;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
@@ -86,6 +89,27 @@ public class JavaTestRuleTest {
     assertEquals(expected, amended);
   }
 
+  @Test
+  public void fastJvmStartupIsOnlyUsedForTestsWithDefaultJvmConfiguration() throws Exception {
+    TestRunningOptions fastStartup =
+        TestRunningOptions.builder().setFastJvmStartupEnabled(true).build();
+
+    assertTrue(newRule(ImmutableList.of()).isFastJvmStartupEnabled(fastStartup));
+    assertFalse(
+        newRule(ImmutableList.of()).isFastJvmStartupEnabled(TestRunningOptions.builder().build()));
+    assertFalse(newRule(ImmutableList.of("-Xmx1g")).isFastJvmStartupEnabled(fastStartup));
+
+    JavaTest ruleWithNativeLibs =
+        (JavaTest) JavaTestBuilder.createBuilder(BuildTargetFactory.newInstance("//example:test"))
+            .setUseCxxLibraries(true)
+            .addSrc(Paths.get("ExampleTest.java"))
+            .build(
+                new BuildRuleResolver(
+                    TargetGraph.EMPTY,
+                    new DefaultTargetNodeToBuildRuleTransformer()));
+    assertFalse(ruleWithNativeLibs.isFastJvmStartupEnabled(fastStartup));
+  }
+
   @Test
   public void transitiveLibraryDependenciesAreRuntimeDeps() throws Exception {
     BuildRuleResolver resolver =
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.jvm.java.intellij;
+
+import static org.junit.Assert.assertEquals;
+
+import com.facebook.buck.testutil.FakeProjectFilesystem;
+
+import org.junit.Test;
+import org.stringtemplate.v4.ST;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IjProjectWriterTest {
+
+  @Test
+  public void testUnchangedFilesAreNotRewritten() throws IOException {
+    final AtomicInteger writes = new AtomicInteger();
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem() {
+      @Override
+      public void move(Path source, Path target, CopyOption... options) throws IOException {
+        writes.incrementAndGet();
+        super.move(source, target, options);
+      }
+    };
+    IjProjectWriter writer = new IjProjectWriter(
+        /* projectDataPreparer */ null,
+        /* projectConfig */ null,
+        filesystem,
+        /* moduleGraph */ null);
+    Path path = Paths.get(".idea/modules/module.iml");
+
+    writer.writeToFile(new ST("contents of <name>").add("name", "module"), path);
+    assertEquals(1, writes.get());
+    assertEquals(Optional.of("contents of module"), filesystem.readFileIfItExists(path));
+
+    writer.writeToFile(new ST("contents of <name>").add("name", "module"), path);
+    assertEquals(1, writes.get());
+
+    writer.writeToFile(new ST("contents of <name>").add("name", "other"), path);
+    assertEquals(2, writes.get());
+    assertEquals(Optional.of("contents of other"), filesystem.readFileIfItExists(path));
+  }
+}
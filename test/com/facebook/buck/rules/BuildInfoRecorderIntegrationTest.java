@@ -85,6 +85,8 @@ public class BuildInfoRecorderIntegrationTest {
         new DefaultClock(),
         new BuildId(),
         ObjectMappers.newDefaultInstance(),
-        ImmutableMap.of());
+        ImmutableMap.of(),
+        new FilesystemBuildInfoStore(filesystem),
+        Optional.empty());
   }
 }
@@ -58,6 +58,7 @@ import org.junit.rules.ExpectedException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BuildInfoRecorderTest {
@@ -319,6 +320,8 @@ public class BuildInfoRecorderTest {
         new DefaultClock(),
         new BuildId(),
         new ObjectMapper(),
-        ImmutableMap.of());
+        ImmutableMap.of(),
+        new FilesystemBuildInfoStore(filesystem),
+        Optional.empty());
   }
 }
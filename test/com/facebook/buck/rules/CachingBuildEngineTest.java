@@ -73,9 +73,13 @@ import com.facebook.buck.testutil.MoreAsserts;
 import com.facebook.buck.testutil.integration.TemporaryPaths;
 import com.facebook.buck.testutil.integration.ZipInspector;
 import com.facebook.buck.timing.DefaultClock;
+import com.facebook.buck.util.FakeProcess;
+import com.facebook.buck.util.FakeProcessExecutor;
 import com.facebook.buck.util.HumanReadableException;
 import com.facebook.buck.util.MoreCollectors;
 import com.facebook.buck.util.ObjectMappers;
+import com.facebook.buck.util.ProcessExecutor;
+import com.facebook.buck.util.ProcessExecutorParams;
 import com.facebook.buck.util.cache.DefaultFileHashCache;
 import com.facebook.buck.util.cache.FileHashCache;
 import com.facebook.buck.util.cache.NullFileHashCache;
@@ -123,6 +127,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -131,10 +136,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -204,6 +211,8 @@ public class CachingBuildEngineTest {
           .setBuildId(new BuildId())
           .setClock(new DefaultClock())
           .setObjectMapper(ObjectMappers.newDefaultInstance())
+          .setBuildInfoStoreManager(
+              new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
           .build();
       buildContext.getEventBus().register(listener);
       resolver =
@@ -427,6 +436,8 @@ public class CachingBuildEngineTest {
           .setBuildId(new BuildId())
           .setArtifactCache(artifactCache)
           .setObjectMapper(ObjectMappers.newDefaultInstance())
+          .setBuildInfoStoreManager(
+              new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
           .build();
 
       // Build the rule!
@@ -501,6 +512,8 @@ public class CachingBuildEngineTest {
           .setBuildId(new BuildId())
           .setArtifactCache(artifactCache)
           .setObjectMapper(ObjectMappers.newDefaultInstance())
+          .setBuildInfoStoreManager(
+              new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
           .build();
 
       // Build the rule!
@@ -642,6 +655,55 @@ public class CachingBuildEngineTest {
                   Optional.empty())));
     }
 
+    @Test
+    public void depsAreFetchedWhileTopLevelRuleIsBeingFetchedInDeepMode() throws Exception {
+      FakeBuildRule dep = new FakeBuildRule(
+          new FakeBuildRuleParamsBuilder("//:dep")
+              .setProjectFilesystem(filesystem)
+              .build(),
+          pathResolver);
+      FakeBuildRule ruleToTest = new FakeBuildRule(BUILD_TARGET, filesystem, pathResolver, dep);
+      final RuleKey ruleToTestKey = defaultRuleKeyFactory.build(ruleToTest);
+
+      // Hold up the fetch for the top-level rule until the fetch for its dep has started, which
+      // only happens in time if the dep was dispatched before the top-level rule hit the cache.
+      final CountDownLatch depFetchStarted = new CountDownLatch(1);
+      final AtomicBoolean depFetchedConcurrently = new AtomicBoolean(false);
+      ArtifactCache artifactCache = new InMemoryArtifactCache() {
+        @Override
+        public CacheResult fetch(RuleKey ruleKey, LazyPath output) {
+          if (ruleKey.equals(ruleToTestKey)) {
+            try {
+              depFetchedConcurrently.set(depFetchStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          } else {
+            depFetchStarted.countDown();
+          }
+          return super.fetch(ruleKey, output);
+        }
+      };
+
+      ListeningExecutorService service = listeningDecorator(Executors.newFixedThreadPool(2));
+      try {
+        CachingBuildEngine cachingBuildEngine = cachingBuildEngineFactory()
+            .setBuildMode(CachingBuildEngine.BuildMode.DEEP)
+            .setExecutorService(service)
+            .build();
+        BuildResult result =
+            cachingBuildEngine.build(
+                buildContext.withArtifactCache(artifactCache),
+                TestExecutionContext.newInstance(),
+                ruleToTest)
+                .get();
+        assertEquals(BuildRuleStatus.SUCCESS, result.getStatus());
+        assertTrue(depFetchedConcurrently.get());
+      } finally {
+        service.shutdownNow();
+      }
+    }
+
     @Test
     public void testMatchingTopLevelRuleKeyStillProcessesRuntimeDeps() throws Exception {
       // Setup a runtime dependency that is found transitively from the top-level rule.
@@ -855,6 +917,56 @@ public class CachingBuildEngineTest {
       assertEquals(BuildRuleSuccessType.MATCHING_RULE_KEY, result.getSuccess());
     }
 
+    @Test
+    public void processesLaunchedByStepsAreTaggedWithTheirRuleAndStep() throws Exception {
+      final ProcessExecutorParams params = ProcessExecutorParams.ofCommand("true");
+      final List<ImmutableMap<String, String>> contexts = new ArrayList<>();
+      ProcessExecutor processExecutor =
+          new FakeProcessExecutor(
+              ImmutableList.of(
+                  new AbstractMap.SimpleEntry<>(params, new FakeProcess(0)),
+                  new AbstractMap.SimpleEntry<>(params, new FakeProcess(0)))) {
+            @Override
+            public LaunchedProcess launchProcess(
+                ProcessExecutorParams launchParams,
+                ImmutableMap<String, String> context) throws IOException {
+              contexts.add(context);
+              return super.launchProcess(launchParams, context);
+            }
+          };
+
+      BuildRule ruleToTest = createRule(
+          filesystem,
+          pathResolver,
+          /* deps */ ImmutableSet.of(),
+          /* buildSteps */ ImmutableList.of(new LaunchProcessStep("compile", params)),
+          /* postBuildSteps */ ImmutableList.of(new LaunchProcessStep("publish", params)),
+          /* pathToOutputFile */ null);
+
+      CachingBuildEngine cachingBuildEngine = cachingBuildEngineFactory().build();
+      BuildResult result =
+          cachingBuildEngine.build(
+              buildContext,
+              TestExecutionContext.newBuilder().setProcessExecutor(processExecutor).build(),
+              ruleToTest)
+              .get();
+      assertEquals(BuildRuleSuccessType.BUILT_LOCALLY, result.getSuccess());
+
+      assertEquals(
+          ImmutableList.of(
+              ImmutableMap.of(
+                  CachingBuildEngine.BUILD_RULE_TYPE_CONTEXT_KEY, ruleToTest.getType(),
+                  "step_type", "BUILD_STEP",
+                  "build_target", ruleToTest.getFullyQualifiedName(),
+                  "step_name", "compile"),
+              ImmutableMap.of(
+                  CachingBuildEngine.BUILD_RULE_TYPE_CONTEXT_KEY, ruleToTest.getType(),
+                  "step_type", "POST_BUILD_STEP",
+                  "build_target", ruleToTest.getFullyQualifiedName(),
+                  "step_name", "publish")),
+          contexts);
+    }
+
     @Test
     public void testBuildRuleLocallyWithCacheError() throws Exception {
       // Create an artifact cache that always errors out.
@@ -3311,6 +3423,23 @@ public class CachingBuildEngineTest {
     }
   }
 
+  private static class LaunchProcessStep extends AbstractExecutionStep {
+
+    private final ProcessExecutorParams params;
+
+    public LaunchProcessStep(String shortName, ProcessExecutorParams params) {
+      super(shortName);
+      this.params = params;
+    }
+
+    @Override
+    public StepExecutionResult execute(ExecutionContext context)
+        throws IOException, InterruptedException {
+      return StepExecutionResult.of(
+          context.getProcessExecutor().launchAndExecute(params).getExitCode());
+    }
+  }
+
   private static class FailingStep extends AbstractExecutionStep {
 
     public FailingStep() {
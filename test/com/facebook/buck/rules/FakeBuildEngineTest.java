@@ -55,6 +55,8 @@ public class FakeBuildEngineTest {
                     .setArtifactCache(new NoopArtifactCache())
                     .setBuildId(new BuildId())
                     .setObjectMapper(ObjectMappers.newDefaultInstance())
+                    .setBuildInfoStoreManager(
+                        new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM))
                     .setClock(new DefaultClock())
                     .build(),
                 TestExecutionContext.newInstance(),
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.BuildTargetFactory;
+import com.facebook.buck.testutil.integration.TemporaryPaths;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+public class LogStructuredBuildInfoStoreTest {
+
+  private static final BuildTarget FOO = BuildTargetFactory.newInstance("//foo:foo");
+  private static final BuildTarget BAR = BuildTargetFactory.newInstance("//bar:bar");
+
+  @Rule
+  public TemporaryPaths tmp = new TemporaryPaths();
+
+  private ProjectFilesystem filesystem;
+
+  @Before
+  public void setUp() throws InterruptedException {
+    filesystem = new ProjectFilesystem(tmp.getRoot());
+  }
+
+  @Test
+  public void updatesAreMergedAndSurviveReopening() throws IOException {
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc", "TARGET", "//foo:foo"));
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "def"));
+      store.updateMetadata(BAR, ImmutableMap.of("RULE_KEY", "123"));
+      assertEquals(Optional.of("def"), store.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("//foo:foo"), store.readMetadata(FOO, "TARGET"));
+    }
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertEquals(Optional.of("def"), store.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("//foo:foo"), store.readMetadata(FOO, "TARGET"));
+      assertEquals(Optional.of("123"), store.readMetadata(BAR, "RULE_KEY"));
+    }
+  }
+
+  @Test
+  public void deletedMetadataStaysDeleted() throws IOException {
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc"));
+      store.deleteMetadata(FOO);
+      assertEquals(Optional.empty(), store.readMetadata(FOO, "RULE_KEY"));
+    }
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertEquals(Optional.empty(), store.readMetadata(FOO, "RULE_KEY"));
+    }
+  }
+
+  @Test
+  public void tornRecordIsDiscarded() throws IOException {
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc"));
+    }
+    Files.write(
+        filesystem.resolve(LogStructuredBuildInfoStore.getPath(filesystem)),
+        new byte[] {0, 0, 0, 42, 1, 2, 3},
+        StandardOpenOption.APPEND);
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertEquals(Optional.of("abc"), store.readMetadata(FOO, "RULE_KEY"));
+      store.updateMetadata(BAR, ImmutableMap.of("RULE_KEY", "123"));
+    }
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertEquals(Optional.of("abc"), store.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("123"), store.readMetadata(BAR, "RULE_KEY"));
+    }
+  }
+
+  @Test
+  public void missingKeysAreReadFromMetadataDirectory() throws IOException {
+    Path metadataDirectory = BuildInfo.getPathToMetadataDirectory(FOO, filesystem);
+    filesystem.mkdirs(metadataDirectory);
+    filesystem.writeContentsToPath("abc", metadataDirectory.resolve("RULE_KEY"));
+    filesystem.writeContentsToPath("[]", metadataDirectory.resolve("RECORDED_PATHS"));
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertEquals(Optional.of("abc"), store.readMetadata(FOO, "RULE_KEY"));
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "def"));
+      assertEquals(Optional.of("def"), store.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("[]"), store.readMetadata(FOO, "RECORDED_PATHS"));
+    }
+  }
+
+  @Test
+  public void refreshPicksUpWritesFromOtherStores() throws IOException {
+    try (LogStructuredBuildInfoStore first = new LogStructuredBuildInfoStore(filesystem);
+         LogStructuredBuildInfoStore second = new LogStructuredBuildInfoStore(filesystem)) {
+      first.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc"));
+      second.refresh();
+      assertEquals(Optional.of("abc"), second.readMetadata(FOO, "RULE_KEY"));
+
+      second.deleteMetadata(FOO);
+      second.updateMetadata(BAR, ImmutableMap.of("RULE_KEY", "123"));
+      first.refresh();
+      assertEquals(Optional.empty(), first.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("123"), first.readMetadata(BAR, "RULE_KEY"));
+    }
+  }
+
+  @Test
+  public void supersededRecordsAreCompactedAwayWhileTheStoreIsOpen() throws IOException {
+    String value = Strings.repeat("x", 64 * 1024);
+    long updates = 2 * LogStructuredBuildInfoStore.MIN_COMPACTION_SIZE / value.length();
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem);
+         LogStructuredBuildInfoStore other = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(BAR, ImmutableMap.of("RULE_KEY", "123"));
+      for (int i = 0; i < updates; i++) {
+        store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc" + i, "OUTPUT", value));
+      }
+      assertTrue(store.getSize() < LogStructuredBuildInfoStore.MIN_COMPACTION_SIZE);
+      assertEquals(Optional.of("abc" + (updates - 1)), store.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of("123"), store.readMetadata(BAR, "RULE_KEY"));
+
+      other.refresh();
+      assertEquals(Optional.of("abc" + (updates - 1)), other.readMetadata(FOO, "RULE_KEY"));
+      assertEquals(Optional.of(value), other.readMetadata(FOO, "OUTPUT"));
+    }
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      assertTrue(store.getSize() < LogStructuredBuildInfoStore.MIN_COMPACTION_SIZE);
+      assertEquals(Optional.of(value), store.readMetadata(FOO, "OUTPUT"));
+      assertEquals(Optional.of("123"), store.readMetadata(BAR, "RULE_KEY"));
+    }
+  }
+
+  @Test
+  public void logIsOnlyDiscardedOnceFilesystemStorageWritesMetadata() throws IOException {
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(FOO, ImmutableMap.of("RULE_KEY", "abc"));
+    }
+    Path log = LogStructuredBuildInfoStore.getPath(filesystem);
+
+    try (BuildInfoStoreManager manager =
+             new BuildInfoStoreManager(CachingBuildEngine.MetadataStorage.FILESYSTEM)) {
+      BuildInfoStore store = manager.get(filesystem);
+      assertEquals(Optional.empty(), store.readMetadata(FOO, "RULE_KEY"));
+      assertTrue(filesystem.exists(log));
+
+      store.updateMetadata(BAR, ImmutableMap.of("RULE_KEY", "123"));
+      assertFalse(filesystem.exists(log));
+    }
+  }
+}
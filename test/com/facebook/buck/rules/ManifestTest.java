@@ -32,11 +32,13 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ManifestTest {
 
@@ -294,6 +296,84 @@ public class ManifestTest {
         Matchers.equalTo(Optional.of(key2)));
   }
 
+  @Test
+  public void lookupHashesEachHeaderOnce() throws IOException {
+    SourcePath shared = new FakeSourcePath("shared.h");
+    SourcePath input = new FakeSourcePath("input.h");
+    String sharedHeader = RESOLVER.getRelativePath(shared).toString();
+    String inputHeader = RESOLVER.getRelativePath(input).toString();
+    RuleKey key = new RuleKey("cc");
+    Manifest manifest =
+        Manifest.fromMap(
+            ImmutableMap.of(
+                new RuleKey("aa"),
+                ImmutableMap.of(
+                    sharedHeader, HashCode.fromInt(1),
+                    inputHeader, HashCode.fromInt(1)),
+                new RuleKey("bb"),
+                ImmutableMap.of(
+                    sharedHeader, HashCode.fromInt(1),
+                    inputHeader, HashCode.fromInt(2)),
+                key,
+                ImmutableMap.of(
+                    sharedHeader, HashCode.fromInt(1),
+                    inputHeader, HashCode.fromInt(3))));
+    final AtomicInteger hashCount = new AtomicInteger();
+    FileHashCache fileHashCache =
+        new FakeFileHashCache(
+            ImmutableMap.of(
+                RESOLVER.getAbsolutePath(shared), HashCode.fromInt(1),
+                RESOLVER.getAbsolutePath(input), HashCode.fromInt(3))) {
+          @Override
+          public HashCode get(Path path) throws IOException {
+            hashCount.incrementAndGet();
+            return super.get(path);
+          }
+        };
+    assertThat(
+        manifest.lookup(fileHashCache, RESOLVER, ImmutableSet.of(shared, input)),
+        Matchers.equalTo(Optional.of(key)));
+    assertThat(hashCount.get(), Matchers.equalTo(2));
+  }
+
+  @Test
+  public void lookupChecksEveryHeaderWithIdenticalContents() throws IOException {
+    RuleKey key = new RuleKey("aa");
+    SourcePath first = new FakeSourcePath("first.h");
+    SourcePath second = new FakeSourcePath("second.h");
+    Manifest manifest = new Manifest();
+    manifest.addEntry(
+        new FakeFileHashCache(
+            ImmutableMap.of(
+                RESOLVER.getAbsolutePath(first), HashCode.fromInt(1),
+                RESOLVER.getAbsolutePath(second), HashCode.fromInt(1))),
+        key,
+        RESOLVER,
+        ImmutableSet.of(first, second),
+        ImmutableSet.of(first, second));
+    FileHashCache fileHashCache =
+        new FakeFileHashCache(
+            ImmutableMap.of(
+                RESOLVER.getAbsolutePath(first), HashCode.fromInt(1),
+                RESOLVER.getAbsolutePath(second), HashCode.fromInt(2)));
+    assertThat(
+        manifest.lookup(fileHashCache, RESOLVER, ImmutableSet.of(first, second)),
+        Matchers.equalTo(Optional.empty()));
+  }
+
+  @Test
+  public void manifestWithOlderVersionIsReadAsEmpty() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(byteArrayOutputStream)) {
+      output.writeInt(0);
+      output.writeInt(1);
+      output.writeUTF("foo/bar.h");
+    }
+    Manifest manifest =
+        new Manifest(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+    assertThat(manifest.size(), Matchers.equalTo(0));
+  }
+
   @Test
   public void size() {
     assertThat(new Manifest().size(), Matchers.equalTo(0));
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import static org.junit.Assert.assertEquals;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.model.BuildId;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.BuildTargetFactory;
+import com.facebook.buck.testutil.FakeProjectFilesystem;
+import com.facebook.buck.timing.DefaultClock;
+import com.facebook.buck.util.ObjectMappers;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public class OnDiskBuildInfoCacheTest {
+
+  private static final BuildTarget BUILD_TARGET = BuildTargetFactory.newInstance("//foo:bar");
+
+  @Test
+  public void valuesAreReadOnceUntilInvalidated() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    OnDiskBuildInfoCache cache = new OnDiskBuildInfoCache();
+    Path metadataDirectory = BuildInfo.getPathToMetadataDirectory(BUILD_TARGET, filesystem);
+    filesystem.writeContentsToPath("first", metadataDirectory.resolve("KEY"));
+
+    assertEquals(Optional.of("first"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+    assertEquals(Optional.empty(), getValue(cache, filesystem, metadataDirectory, "MISSING"));
+
+    filesystem.writeContentsToPath("second", metadataDirectory.resolve("KEY"));
+    filesystem.writeContentsToPath("present", metadataDirectory.resolve("MISSING"));
+    assertEquals(Optional.of("first"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+    assertEquals(Optional.empty(), getValue(cache, filesystem, metadataDirectory, "MISSING"));
+
+    cache.invalidate(filesystem, metadataDirectory);
+    assertEquals(Optional.of("second"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+    assertEquals(Optional.of("present"), getValue(cache, filesystem, metadataDirectory, "MISSING"));
+  }
+
+  @Test
+  public void writesThroughRecorderAndDeletionAreVisible() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    OnDiskBuildInfoCache cache = new OnDiskBuildInfoCache();
+    OnDiskBuildInfo onDiskBuildInfo =
+        new DefaultOnDiskBuildInfo(
+            BUILD_TARGET,
+            filesystem,
+            new FilesystemBuildInfoStore(filesystem),
+            Optional.of(cache),
+            ObjectMappers.newDefaultInstance());
+    assertEquals(Optional.empty(), onDiskBuildInfo.getValue(BuildInfo.MetadataKey.RULE_KEY));
+
+    BuildInfoRecorder recorder =
+        new BuildInfoRecorder(
+            BUILD_TARGET,
+            filesystem,
+            new DefaultClock(),
+            new BuildId(),
+            ObjectMappers.newDefaultInstance(),
+            ImmutableMap.of(),
+            new FilesystemBuildInfoStore(filesystem),
+            Optional.of(cache));
+    recorder.addBuildMetadata(BuildInfo.MetadataKey.RULE_KEY, "abcd");
+    recorder.writeMetadataToDisk(/* clearExistingMetadata */ true);
+    assertEquals(Optional.of("abcd"), onDiskBuildInfo.getValue(BuildInfo.MetadataKey.RULE_KEY));
+
+    onDiskBuildInfo.deleteExistingMetadata();
+    assertEquals(Optional.empty(), onDiskBuildInfo.getValue(BuildInfo.MetadataKey.RULE_KEY));
+  }
+
+  @Test
+  public void buildsByOtherProcessesInvalidateTheCache() throws IOException {
+    FakeProjectFilesystem filesystem = new FakeProjectFilesystem();
+    OnDiskBuildInfoCache cache = new OnDiskBuildInfoCache();
+    Path metadataDirectory = BuildInfo.getPathToMetadataDirectory(BUILD_TARGET, filesystem);
+    filesystem.writeContentsToPath("first", metadataDirectory.resolve("KEY"));
+
+    cache.startBuild(new BuildId("a"));
+    assertEquals(Optional.of("first"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+    filesystem.writeContentsToPath("second", metadataDirectory.resolve("KEY"));
+
+    // A subsequent build by the same process keeps the cached values.
+    cache.startBuild(new BuildId("b"));
+    assertEquals(Optional.of("first"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+
+    // Another process building in between replaces the stamp, so everything is re-read.
+    buildInAnotherProcess(filesystem, metadataDirectory);
+    cache.startBuild(new BuildId("d"));
+    assertEquals(Optional.of("second"), getValue(cache, filesystem, metadataDirectory, "KEY"));
+  }
+
+  @Test
+  public void stampsAreCheckedSeparatelyForEachCell() throws IOException {
+    FakeProjectFilesystem rootFilesystem = new FakeProjectFilesystem(Paths.get("/root"));
+    FakeProjectFilesystem otherFilesystem = new FakeProjectFilesystem(Paths.get("/other"));
+    OnDiskBuildInfoCache cache = new OnDiskBuildInfoCache();
+    Path rootMetadata = BuildInfo.getPathToMetadataDirectory(BUILD_TARGET, rootFilesystem);
+    Path otherMetadata = BuildInfo.getPathToMetadataDirectory(BUILD_TARGET, otherFilesystem);
+    rootFilesystem.writeContentsToPath("root-first", rootMetadata.resolve("KEY"));
+    otherFilesystem.writeContentsToPath("other-first", otherMetadata.resolve("KEY"));
+
+    cache.startBuild(new BuildId("a"));
+    assertEquals(
+        Optional.of("root-first"),
+        getValue(cache, rootFilesystem, rootMetadata, "KEY"));
+    assertEquals(
+        Optional.of("other-first"),
+        getValue(cache, otherFilesystem, otherMetadata, "KEY"));
+    rootFilesystem.writeContentsToPath("root-second", rootMetadata.resolve("KEY"));
+    otherFilesystem.writeContentsToPath("other-second", otherMetadata.resolve("KEY"));
+
+    // Another process using the second cell as its root cell only stamps that cell.
+    buildInAnotherProcess(otherFilesystem, otherMetadata);
+    cache.startBuild(new BuildId("d"));
+    assertEquals(
+        Optional.of("root-first"),
+        getValue(cache, rootFilesystem, rootMetadata, "KEY"));
+    assertEquals(
+        Optional.of("other-second"),
+        getValue(cache, otherFilesystem, otherMetadata, "KEY"));
+  }
+
+  private static void buildInAnotherProcess(
+      ProjectFilesystem filesystem,
+      Path metadataDirectory) {
+    OnDiskBuildInfoCache otherCache = new OnDiskBuildInfoCache();
+    otherCache.startBuild(new BuildId("c"));
+    otherCache.invalidate(filesystem, metadataDirectory);
+  }
+
+  private static Optional<String> getValue(
+      OnDiskBuildInfoCache cache,
+      ProjectFilesystem filesystem,
+      Path metadataDirectory,
+      String key) {
+    return cache.getValue(
+        filesystem,
+        metadataDirectory,
+        key,
+        () -> filesystem.readFileIfItExists(metadataDirectory.resolve(key)));
+  }
+}
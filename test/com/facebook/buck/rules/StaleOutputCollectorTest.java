@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-present Facebook, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.facebook.buck.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.buck.io.ProjectFilesystem;
+import com.facebook.buck.model.BuildTarget;
+import com.facebook.buck.model.BuildTargetFactory;
+import com.facebook.buck.testutil.TargetGraphFactory;
+import com.facebook.buck.testutil.integration.TemporaryPaths;
+import com.facebook.buck.util.ObjectMappers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+public class StaleOutputCollectorTest {
+
+  private static final long NOW = TimeUnit.DAYS.toMillis(1000);
+  private static final FileTime CUTOFF = FileTime.fromMillis(NOW - TimeUnit.DAYS.toMillis(7));
+  private static final FileTime OLD = FileTime.fromMillis(NOW - TimeUnit.DAYS.toMillis(30));
+  private static final FileTime RECENT = FileTime.fromMillis(NOW - TimeUnit.DAYS.toMillis(1));
+
+  @Rule
+  public TemporaryPaths tmp = new TemporaryPaths();
+
+  private ProjectFilesystem filesystem;
+  private Path trash;
+
+  @Before
+  public void setUp() throws InterruptedException {
+    filesystem = new ProjectFilesystem(tmp.getRoot());
+    trash = filesystem.getBuckPaths().getTrashDir().resolve("build-id");
+  }
+
+  @Test
+  public void outputsOfStaleRulesAreMovedWithTheirMetadata() throws IOException {
+    BuildTarget live = BuildTargetFactory.newInstance(filesystem, "//foo:live");
+    BuildTarget deadInLivePackage = BuildTargetFactory.newInstance(filesystem, "//foo:gone");
+    BuildTarget dead = BuildTargetFactory.newInstance(filesystem, "//bar:dead#flavor");
+    BuildTarget recent = BuildTargetFactory.newInstance(filesystem, "//baz:recent");
+    Path liveJar = writeRule(live, "live.jar", OLD);
+    Path goneJar = writeRule(deadInLivePackage, "gone.jar", OLD);
+    Path deadJar = writeRule(dead, "dead.jar", OLD);
+    Path recentJar = writeRule(recent, "recent.jar", RECENT);
+
+    // Nothing in //bar is kept, so its package directories go as a whole.
+    ImmutableSortedMap<Path, Long> expected = ImmutableSortedMap.of(
+        goneJar, (long) "gone.jar".length(),
+        deadJar.getParent(), (long) "dead.jar".length(),
+        getMetadataParent(deadInLivePackage), getMetadataSize(deadInLivePackage),
+        getMetadataParent(dead).getParent(), getMetadataSize(dead));
+
+    try (LogStructuredBuildInfoStore store = new LogStructuredBuildInfoStore(filesystem)) {
+      store.updateMetadata(dead, ImmutableMap.of(BuildInfo.MetadataKey.RULE_KEY, "abc"));
+
+      ImmutableSortedMap<Path, Long> moved =
+          new StaleOutputCollector(filesystem, store, ObjectMappers.newDefaultInstance())
+              .collect(ImmutableList.of(createRule(live)), CUTOFF, trash);
+
+      assertEquals(expected, moved);
+      assertEquals(Optional.empty(), store.readMetadata(dead, BuildInfo.MetadataKey.RULE_KEY));
+    }
+
+    assertTrue(filesystem.exists(liveJar));
+    assertTrue(filesystem.exists(BuildInfo.getPathToMetadataDirectory(live, filesystem)));
+    assertTrue(filesystem.exists(recentJar));
+    assertFalse(filesystem.exists(deadJar));
+    assertTrue(filesystem.exists(trash.resolve(deadJar)));
+    assertTrue(filesystem.exists(trash.resolve(getMetadataParent(dead))));
+  }
+
+  @Test
+  public void unrecordedFilesAreMovedOnlyWhenOldAndOutsideLivePackages() throws IOException {
+    BuildTarget live = BuildTargetFactory.newInstance(filesystem, "//foo:live");
+    writeRule(live, "live.jar", OLD);
+    Path genDir = filesystem.getBuckPaths().getGenDir();
+    Path unrecordedInLivePackage = writeFile(genDir.resolve("foo/scratch/file"), OLD);
+    Path oldOrphan = writeFile(genDir.resolve("qux/old/file"), OLD);
+    Path newOrphan = writeFile(genDir.resolve("qux/new/file"), RECENT);
+    Path logStore = writeFile(LogStructuredBuildInfoStore.getPath(filesystem), OLD);
+
+    ImmutableSortedMap<Path, Long> moved =
+        new StaleOutputCollector(
+            filesystem,
+            new FilesystemBuildInfoStore(filesystem),
+            ObjectMappers.newDefaultInstance())
+            .collect(ImmutableList.of(createRule(live)), CUTOFF, trash);
+
+    assertEquals(ImmutableSortedMap.of(oldOrphan.getParent(), (long) "file".length()), moved);
+    assertTrue(filesystem.exists(unrecordedInLivePackage));
+    assertTrue(filesystem.exists(newOrphan));
+    assertTrue(filesystem.exists(logStore));
+  }
+
+  private BuildRule createRule(BuildTarget target) {
+    return new FakeBuildRule(
+        target,
+        filesystem,
+        new SourcePathResolver(
+            new BuildRuleResolver(
+                TargetGraphFactory.newInstance(),
+                new DefaultTargetNodeToBuildRuleTransformer())));
+  }
+
+  /**
+   * Writes an output for {@code target} in its gen directory, along with metadata recording it.
+   */
+  private Path writeRule(BuildTarget target, String output, FileTime time) throws IOException {
+    Path outputPath = writeFile(
+        filesystem.getBuckPaths().getGenDir().resolve(target.getBasePath()).resolve(output),
+        time);
+    writeFile(
+        BuildInfo.getPathToMetadataDirectory(target, filesystem)
+            .resolve(BuildInfo.MetadataKey.RECORDED_PATHS),
+        "[\"" + outputPath + "\"]",
+        time);
+    return outputPath;
+  }
+
+  private Path writeFile(Path path, FileTime time) throws IOException {
+    return writeFile(path, path.getFileName().toString(), time);
+  }
+
+  private Path writeFile(Path path, String contents, FileTime time) throws IOException {
+    filesystem.createParentDirs(path);
+    filesystem.writeContentsToPath(contents, path);
+    // Parent directories were just created too, so make them look as old as their contents.
+    for (Path dir = path; dir != null; dir = dir.getParent()) {
+      Files.setLastModifiedTime(filesystem.resolve(dir), time);
+      if (dir.equals(Paths.get("buck-out"))) {
+        break;
+      }
+    }
+    return path;
+  }
+
+  private Path getMetadataParent(BuildTarget target) {
+    return BuildInfo.getPathToMetadataDirectory(target, filesystem).getParent();
+  }
+
+  private long getMetadataSize(BuildTarget target) throws IOException {
+    return filesystem.getFileSize(
+        BuildInfo.getPathToMetadataDirectory(target, filesystem)
+            .resolve(BuildInfo.MetadataKey.RECORDED_PATHS));
+  }
+}
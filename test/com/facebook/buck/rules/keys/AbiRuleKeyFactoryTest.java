@@ -27,6 +27,7 @@ import com.facebook.buck.rules.DefaultTargetNodeToBuildRuleTransformer;
 import com.facebook.buck.rules.FakeAbiRuleBuildRule;
 import com.facebook.buck.rules.FakeBuildRule;
 import com.facebook.buck.rules.RuleKey;
+import com.facebook.buck.rules.RuleKeyAppendable;
 import com.facebook.buck.util.sha1.Sha1HashCode;
 import com.facebook.buck.rules.SourcePathResolver;
 import com.facebook.buck.rules.TargetGraph;
@@ -39,6 +40,7 @@ import org.junit.Test;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AbiRuleKeyFactoryTest {
 
@@ -101,4 +103,28 @@ public class AbiRuleKeyFactoryTest {
         not(equalTo(inputKey2)));
   }
 
+  @Test
+  public void appendableSubKeysAreSharedWithDefaultFactory() {
+    BuildRuleResolver resolver =
+        new BuildRuleResolver(TargetGraph.EMPTY, new DefaultTargetNodeToBuildRuleTransformer());
+    SourcePathResolver pathResolver = new SourcePathResolver(resolver);
+    FakeFileHashCache hashCache = new FakeFileHashCache(ImmutableMap.of());
+    DefaultRuleKeyFactory ruleKeyFactory =
+        new DefaultRuleKeyFactory(0, hashCache, pathResolver);
+
+    AtomicInteger appendCount = new AtomicInteger();
+    RuleKeyAppendable appendable = sink -> {
+      appendCount.incrementAndGet();
+      sink.setReflectively("value", "shared");
+    };
+    ruleKeyFactory.getAppendableRuleKey(appendable);
+
+    new AbiRuleKeyFactory(0, hashCache, pathResolver, ruleKeyFactory)
+        .newInstance(new FakeAbiRuleBuildRule("//:rule", pathResolver))
+        .setReflectively("appendable", appendable)
+        .build();
+
+    assertThat(appendCount.get(), equalTo(1));
+  }
+
 }
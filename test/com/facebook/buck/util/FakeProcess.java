@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Fake implementation of {@link java.lang.Process}.
@@ -149,6 +150,12 @@ public class FakeProcess extends Process {
     }
   }
 
+  @Override
+  public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+    waitFor();
+    return true;
+  }
+
   /**
    * Returns true if {@link #destroy()} was called on this object, false otherwise.
    */
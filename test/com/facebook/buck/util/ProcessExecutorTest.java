@@ -19,6 +19,7 @@ package com.facebook.buck.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import com.facebook.buck.testutil.TestConsole;
 import com.facebook.buck.util.environment.Platform;
@@ -130,6 +131,40 @@ public class ProcessExecutorTest {
         result.isTimedOut());
   }
 
+  @Test
+  public void testOutputOfTimedOutProcessIsStillCaptured()
+      throws IOException, InterruptedException {
+    assumeTrue(Platform.detect() != Platform.WINDOWS);
+    ProcessExecutor executor = new DefaultProcessExecutor(new TestConsole(Verbosity.ALL));
+    EnumSet<ProcessExecutor.Option> options = EnumSet.of(
+        ProcessExecutor.Option.EXPECTING_STD_OUT,
+        ProcessExecutor.Option.EXPECTING_STD_ERR);
+
+    // Run more than once, so that later runs reuse stream consumer threads of earlier ones.
+    for (int i = 0; i < 3; i++) {
+      ProcessExecutor.Result result = executor.launchAndExecute(
+          ProcessExecutorParams.ofCommand(
+              "sh", "-c", "echo out" + i + "; echo err" + i + " >&2; exec sleep 50"),
+          options,
+          /* stdin */ Optional.empty(),
+          /* timeOutMs */ Optional.of((long) 1000),
+          /* timeOutHandler */ Optional.empty());
+      assertTrue("process was reported as timed out", result.isTimedOut());
+      assertEquals("out" + i + "\n", result.getStdout().get());
+      assertEquals("err" + i + "\n", result.getStderr().get());
+    }
+
+    ProcessExecutor.Result result = executor.launchAndExecute(
+        ProcessExecutorParams.ofCommand("echo", "Hello"),
+        options,
+        /* stdin */ Optional.empty(),
+        /* timeOutMs */ Optional.of((long) 10000),
+        /* timeOutHandler */ Optional.empty());
+    assertFalse("process finished before the timeout", result.isTimedOut());
+    assertEquals(0, result.getExitCode());
+    assertEquals("Hello\n", result.getStdout().get());
+  }
+
   private static String[] makeCommandArray(String command) {
     StringTokenizer st = new StringTokenizer(command);
     String[] cmdarray = new String[st.countTokens()];
@@ -219,6 +219,56 @@ public class ListeningMultiSemaphoreTest {
     assertThat(second.isDone(), Matchers.equalTo(true));
   }
 
+  @Test
+  public void pendingItemsOfDifferentAmountsAreGrantedInQueueOrder() {
+    ListeningMultiSemaphore semaphore = getFairListeningMultiSemaphore(amountsOfCpu(4));
+    semaphore.acquire(amountsOfCpu(4));
+
+    ListenableFuture<Void> first = semaphore.acquire(amountsOfCpu(1));
+    ListenableFuture<Void> second = semaphore.acquire(amountsOfCpu(3));
+    ListenableFuture<Void> third = semaphore.acquire(amountsOfCpu(1));
+    ListenableFuture<Void> fourth = semaphore.acquire(amountsOfCpu(2));
+    assertThat(semaphore.getQueueLength(), Matchers.equalTo(4));
+
+    // Only the oldest item fits, and the fair semaphore must not let the third item jump ahead
+    // of the second one.
+    semaphore.release(amountsOfCpu(2));
+    assertThat(first.isDone(), Matchers.equalTo(true));
+    assertThat(second.isDone(), Matchers.equalTo(false));
+    assertThat(third.isDone(), Matchers.equalTo(false));
+    assertThat(semaphore.getQueueLength(), Matchers.equalTo(3));
+
+    semaphore.release(amountsOfCpu(2));
+    assertThat(second.isDone(), Matchers.equalTo(true));
+    assertThat(third.isDone(), Matchers.equalTo(false));
+    assertThat(semaphore.getAvailableResources(), Matchers.equalTo(ResourceAmounts.ZERO));
+
+    semaphore.release(amountsOfCpu(3));
+    assertThat(third.isDone(), Matchers.equalTo(true));
+    assertThat(fourth.isDone(), Matchers.equalTo(true));
+    assertThat(semaphore.getQueueLength(), Matchers.equalTo(0));
+  }
+
+  @Test
+  public void fastFairnessGrantsOldestPendingItemThatFits() {
+    ListeningMultiSemaphore semaphore = new ListeningMultiSemaphore(
+        amountsOfCpu(4),
+        ResourceAllocationFairness.FAST);
+    semaphore.acquire(amountsOfCpu(4));
+
+    ListenableFuture<Void> large = semaphore.acquire(amountsOfCpu(4));
+    ListenableFuture<Void> medium = semaphore.acquire(amountsOfCpu(2));
+    ListenableFuture<Void> small = semaphore.acquire(amountsOfCpu(1));
+    ListenableFuture<Void> otherMedium = semaphore.acquire(amountsOfCpu(2));
+
+    semaphore.release(amountsOfCpu(3));
+    assertThat(large.isDone(), Matchers.equalTo(false));
+    assertThat(medium.isDone(), Matchers.equalTo(true));
+    assertThat(small.isDone(), Matchers.equalTo(true));
+    assertThat(otherMedium.isDone(), Matchers.equalTo(false));
+    assertThat(semaphore.getQueueLength(), Matchers.equalTo(2));
+  }
+
   private ListeningMultiSemaphore getFairListeningMultiSemaphore(ResourceAmounts values) {
     return new ListeningMultiSemaphore(
         values,
@@ -147,6 +147,23 @@ public class ProcessTrackerTest {
     verifyEvents(ImmutableMap.of(), null, events);
   }
 
+  @Test
+  public void flushReportsFinishedProcessesWithoutWaitingForTheNextProbe() throws Exception {
+    BlockingQueue<ProcessResourceConsumptionEvent> events = new LinkedBlockingQueue<>();
+    try (ProcessTrackerForTest processTracker = createProcessTracker(events)) {
+      FakeNuProcess proc41 = new FakeNuProcess(41);
+      FakeNuProcess proc42 = new FakeNuProcess(42);
+      processRegistry.registerProcess(proc41, createParams("proc41"), CONTEXT);
+      processRegistry.registerProcess(proc42, createParams("proc42"), CONTEXT);
+      proc41.finish(0);
+
+      processTracker.flush();
+      processTracker.verifyNoProcessInfo(41);
+      processTracker.verifyExternalProcessInfo(42, proc42, createParams("proc42"));
+      verifyEvents(ImmutableMap.of("proc41", Optional.of(createParams("proc41"))), null, events);
+    }
+  }
+
   @Test
   public void testExternalProcessInfo() throws Exception {
     BlockingQueue<ProcessResourceConsumptionEvent> events = new LinkedBlockingQueue<>();